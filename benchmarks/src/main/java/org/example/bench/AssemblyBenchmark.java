@@ -0,0 +1,85 @@
+package org.example.bench;
+
+import org.example.CatItemBank;
+import org.example.Question;
+import org.example.QuestionBitmap;
+import org.example.TestAssembler;
+import org.example.TestSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AssemblyBenchmark class - Cost of drawing the questions of one test
+ * Runs against a synthetic in-memory bank, so no database is needed; the plain draw should
+ * not grow with the size of the bank. drawUnseen excludes the questions of a repeat taker
+ * who has already completed SEEN_TESTS tests. selectAdaptive is the per-answer work of an
+ * adaptive test: picking the most informative unseen item at a random ability.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssemblyBenchmark {
+    private static final String[] CATEGORIES = {"verbal", "numerical", "spatial", "logical"};
+    private static final int DIFFICULTIES = 5;
+    private static final int SEEN_TESTS = 25;
+
+    @Param({"1000", "100000"})
+    public int bankSize;
+
+    private TestAssembler assembler;
+    private QuestionBitmap seen;
+    private CatItemBank itemBank;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Question> questions = new ArrayList<>(bankSize);
+        for (int id = 1; id <= bankSize; id++) {
+            questions.add(new Question(id, "Question " + id, "A", "B", "C", "D", 1 + random.nextInt(4),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], 1 + random.nextInt(DIFFICULTIES)));
+        }
+        assembler = new TestAssembler(questions);
+        itemBank = CatItemBank.uncalibrated(questions);
+        seen = new QuestionBitmap();
+        Random seeded = new Random(42);
+        for (int test = 0; test < SEEN_TESTS; test++) {
+            for (int id : assembler.draw(TestSession.DEFAULT_TOTAL_QUESTIONS, seeded, seen)) {
+                seen.add(id);
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] draw() {
+        return assembler.draw(TestSession.DEFAULT_TOTAL_QUESTIONS, ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    public int[] drawUnseen() {
+        return assembler.draw(TestSession.DEFAULT_TOTAL_QUESTIONS, ThreadLocalRandom.current(), seen);
+    }
+
+    @Benchmark
+    public int selectAdaptive() {
+        return itemBank.select(ThreadLocalRandom.current().nextGaussian(), seen::contains);
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.bench;
+
+import org.example.AttemptJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AttemptInsertBenchmark class - Cost of storing one answered question
+ * Each invocation stores a whole test: one autocommitted INSERT per answer (the
+ * original path) against the AttemptJournal, which spills each answer to disk and
+ * writes the test in one batched transaction. Reported per attempt.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkDatabase.URL_ARG, BenchmarkDatabase.USER_ARG,
+        BenchmarkDatabase.PASSWORD_ARG, BenchmarkDatabase.JOURNAL_ARG})
+@OperationsPerInvocation(BenchmarkDatabase.QUESTION_COUNT)
+public class AttemptInsertBenchmark {
+    private static final int RESPONSE_MILLIS = 4_200;
+
+    @Benchmark
+    public void singleInserts(NewResult result) throws SQLException {
+        insertOneByOne(result.resultId);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public void singleInsertsContended(NewResult result) throws SQLException {
+        insertOneByOne(result.resultId);
+    }
+
+    @Benchmark
+    public void journalBatch(NewResult result) throws SQLException {
+        insertThroughJournal(result.resultId);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public void journalBatchContended(NewResult result) throws SQLException {
+        insertThroughJournal(result.resultId);
+    }
+
+    private static void insertOneByOne(int resultId) throws SQLException {
+        int score = 0;
+        for (int q = 1; q <= BenchmarkDatabase.QUESTION_COUNT; q++) {
+            boolean correct = q % 4 == 0;
+            try (Connection conn = BenchmarkDatabase.connect()) {
+                PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO attempts(result_id, question_id, chosen_option, is_correct) VALUES (?, ?, ?, ?)");
+                ps.setInt(1, resultId);
+                ps.setInt(2, q);
+                ps.setString(3, "A");
+                ps.setBoolean(4, correct);
+                ps.executeUpdate();
+                ps.close();
+            }
+            if (correct) {
+                score++;
+            }
+        }
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            PreparedStatement ps = conn.prepareStatement("UPDATE results SET score = ? WHERE result_id = ?");
+            ps.setInt(1, score);
+            ps.setInt(2, resultId);
+            ps.executeUpdate();
+            ps.close();
+        }
+    }
+
+    private static void insertThroughJournal(int resultId) throws SQLException {
+        AttemptJournal journal = new AttemptJournal(resultId);
+        int score = 0;
+        for (int q = 1; q <= BenchmarkDatabase.QUESTION_COUNT; q++) {
+            boolean correct = q % 4 == 0;
+            journal.record(q, "A", correct, RESPONSE_MILLIS);
+            if (correct) {
+                score++;
+            }
+        }
+        journal.complete(score);
+    }
+
+    /**
+     * A fresh results row per invocation, as starting a test creates
+     */
+    @State(Scope.Thread)
+    public static class NewResult {
+        private int userId;
+        int resultId;
+
+        @Setup(Level.Trial)
+        public void createUser() throws SQLException {
+            BenchmarkDatabase.ensureSchema();
+            userId = BenchmarkDatabase.createUser("insert");
+        }
+
+        // Invocation-level setup is acceptable here: each invocation is many round trips
+        @Setup(Level.Invocation)
+        public void createResult() throws SQLException {
+            resultId = BenchmarkDatabase.createResult(userId);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.bench;
+
+import org.example.DBConnection;
+import org.example.DataAccess;
+import org.example.SchemaMigrator;
+import org.example.TestSession;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BenchmarkDatabase class - Embedded H2 (MySQL mode) stand-in for the production schema
+ * Every benchmark forks with these system properties so DBConnection points at the
+ * in-process database instead of MySQL; the schema and seed data are created once per fork.
+ */
+public final class BenchmarkDatabase {
+    public static final String URL = "jdbc:h2:mem:iqbench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    public static final String URL_ARG = "-Diq.db.url=" + URL;
+    public static final String USER_ARG = "-Diq.db.user=sa";
+    public static final String PASSWORD_ARG = "-Diq.db.password=";
+    public static final String JOURNAL_ARG = "-Diq.journal.dir=target/bench-journal";
+
+    public static final int QUESTION_COUNT = TestSession.DEFAULT_TOTAL_QUESTIONS;
+    // Thread count of the contended variants; override per run with -t
+    public static final int CONTENDED_THREADS = 8;
+
+    private static final AtomicInteger USER_SEQUENCE = new AtomicInteger();
+
+    private static boolean created;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Creates the schema through the application's migrations, then the question bank, on first use
+     */
+    public static synchronized void ensureSchema() throws SQLException {
+        if (created) {
+            return;
+        }
+        SchemaMigrator.migrate();
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO questions(question_id, question_text, option_a, option_b, option_c, option_d, correct_option) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?)");
+            for (int id = 1; id <= QUESTION_COUNT; id++) {
+                ps.setInt(1, id);
+                ps.setString(2, "Which number comes next in sequence " + id + "?");
+                ps.setString(3, "Option A of " + id);
+                ps.setString(4, "Option B of " + id);
+                ps.setString(5, "Option C of " + id);
+                ps.setString(6, "Option D of " + id);
+                ps.setInt(7, id % 4 + 1);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ps.close();
+        }
+        created = true;
+    }
+
+    /**
+     * @return ID of a new user with a unique name
+     */
+    public static int createUser(String prefix) throws SQLException {
+        String username = prefix + "_" + USER_SEQUENCE.incrementAndGet();
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO users(username, email, password) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, username);
+            ps.setString(2, username + "@example.com");
+            ps.setString(3, "secret");
+            ps.executeUpdate();
+            ResultSet rs = ps.getGeneratedKeys();
+            rs.next();
+            int userId = rs.getInt(1);
+            rs.close();
+            ps.close();
+            return userId;
+        }
+    }
+
+    /**
+     * Inserts completed results with a full set of answers for one user
+     * @return ID of the last result inserted
+     */
+    public static int seedResults(int userId, int count) throws SQLException {
+        int lastResultId = 0;
+        try (Connection conn = connect()) {
+            conn.setAutoCommit(false);
+            PreparedStatement result = conn.prepareStatement(
+                    "INSERT INTO results(user_id, score, total_questions, date_taken, completed_on) VALUES (?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement attempt = conn.prepareStatement(
+                    "INSERT INTO attempts(result_id, question_id, chosen_option, is_correct) VALUES (?, ?, ?, ?)");
+            LocalDateTime start = LocalDateTime.now().minusDays(count);
+            for (int i = 0; i < count; i++) {
+                result.setInt(1, userId);
+                result.setInt(2, i % (QUESTION_COUNT + 1));
+                result.setInt(3, QUESTION_COUNT);
+                result.setTimestamp(4, Timestamp.valueOf(start.plusDays(i)));
+                result.setTimestamp(5, Timestamp.valueOf(start.plusDays(i)));
+                result.executeUpdate();
+                ResultSet rs = result.getGeneratedKeys();
+                rs.next();
+                lastResultId = rs.getInt(1);
+                rs.close();
+
+                for (int q = 1; q <= QUESTION_COUNT; q++) {
+                    attempt.setInt(1, lastResultId);
+                    attempt.setInt(2, q);
+                    attempt.setString(3, "A");
+                    attempt.setBoolean(4, q % 4 == 0);
+                    attempt.addBatch();
+                }
+                attempt.executeBatch();
+            }
+            result.close();
+            attempt.close();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        return lastResultId;
+    }
+
+    /**
+     * Inserts an empty results row, as starting a test does
+     */
+    public static int createResult(int userId) throws SQLException {
+        return DataAccess.createResult(userId, QUESTION_COUNT);
+    }
+
+    static Connection connect() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null) {
+            throw new SQLException("No database connection available");
+        }
+        return conn;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.bench;
+
+import org.example.InMemoryTestStorage;
+import org.example.Question;
+import org.example.QuestionBank;
+import org.example.TestSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GradingBenchmark class - Cost of grading one answer
+ * The original checkAnswer looked the correct option up in the database for every
+ * answer; TestSession grades against the question it already loaded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkDatabase.URL_ARG, BenchmarkDatabase.USER_ARG,
+        BenchmarkDatabase.PASSWORD_ARG, BenchmarkDatabase.JOURNAL_ARG})
+@State(Scope.Benchmark)
+public class GradingBenchmark {
+    private static final String[] OPTIONS = {"A", "B", "C", "D"};
+
+    private final List<Question> questions = new ArrayList<>();
+    private InMemoryTestStorage storage;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.ensureSchema();
+        QuestionBank bank = QuestionBank.getInstance();
+        for (int id = 1; id <= BenchmarkDatabase.QUESTION_COUNT; id++) {
+            questions.add(bank.get(id));
+        }
+        // Built once: its question index is not part of grading
+        storage = new InMemoryTestStorage(questions);
+    }
+
+    @Benchmark
+    public boolean perAnswerQuery(RunningTest test) throws SQLException {
+        return queryGrade(test.nextQuestionId(), test.nextOption());
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public boolean perAnswerQueryContended(RunningTest test) throws SQLException {
+        return queryGrade(test.nextQuestionId(), test.nextOption());
+    }
+
+    @Benchmark
+    public TestSession.Outcome session(RunningTest test) throws SQLException {
+        return test.answerNext(storage);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public TestSession.Outcome sessionContended(RunningTest test) throws SQLException {
+        return test.answerNext(storage);
+    }
+
+    private static boolean queryGrade(int questionId, String option) throws SQLException {
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT correct_option FROM questions WHERE question_id = ?");
+            ps.setInt(1, questionId);
+            ResultSet rs = ps.executeQuery();
+            boolean correct = rs.next() && rs.getInt("correct_option") == TestSession.optionNumber(option);
+            rs.close();
+            ps.close();
+            return correct;
+        }
+    }
+
+    /**
+     * One thread's test in progress; a new one is started when it finishes
+     */
+    @State(Scope.Thread)
+    public static class RunningTest {
+        private TestSession session;
+        private int step;
+
+        int nextQuestionId() {
+            step++;
+            return step % BenchmarkDatabase.QUESTION_COUNT + 1;
+        }
+
+        String nextOption() {
+            return OPTIONS[step % OPTIONS.length];
+        }
+
+        TestSession.Outcome answerNext(InMemoryTestStorage storage) throws SQLException {
+            if (session == null || session.getState() == TestSession.State.FINISHED) {
+                // Storage writes run inline so only the grading path is measured
+                session = new TestSession(1, BenchmarkDatabase.QUESTION_COUNT, TestSession.DEFAULT_SECONDS_PER_QUESTION,
+                        storage, TestSession.Clock.SYSTEM, Runnable::run);
+                session.start();
+            }
+            session.present();
+            step++;
+            return session.answer(nextOption());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.bench;
+
+import org.example.DataAccess;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HistoryBenchmark class - Cost of listing a user's past results
+ * Parameterised by how many tests the user has taken, since the history query
+ * returns every row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkDatabase.URL_ARG, BenchmarkDatabase.USER_ARG,
+        BenchmarkDatabase.PASSWORD_ARG, BenchmarkDatabase.JOURNAL_ARG})
+@State(Scope.Benchmark)
+public class HistoryBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int historySize;
+
+    private int userId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.ensureSchema();
+        userId = BenchmarkDatabase.createUser("history");
+        BenchmarkDatabase.seedResults(userId, historySize);
+    }
+
+    @Benchmark
+    public List<DataAccess.HistoryEntry> history() throws SQLException {
+        return DataAccess.loadHistory(userId);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public List<DataAccess.HistoryEntry> historyContended() throws SQLException {
+        return DataAccess.loadHistory(userId);
+    }
+}
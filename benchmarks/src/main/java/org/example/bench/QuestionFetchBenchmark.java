@@ -0,0 +1,99 @@
+package org.example.bench;
+
+import org.example.Question;
+import org.example.QuestionBank;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuestionFetchBenchmark class - Cost of getting one question on screen
+ * Compares the original one-query-per-question path with the QuestionBank, cold
+ * (reloaded after invalidation) and cached, on one thread and under contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkDatabase.URL_ARG, BenchmarkDatabase.USER_ARG,
+        BenchmarkDatabase.PASSWORD_ARG, BenchmarkDatabase.JOURNAL_ARG})
+@State(Scope.Benchmark)
+public class QuestionFetchBenchmark {
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.ensureSchema();
+        QuestionBank.getInstance().preload();
+    }
+
+    @Benchmark
+    public Question perQuestionQuery(QuestionCursor cursor) throws SQLException {
+        return queryQuestion(cursor.nextId());
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public Question perQuestionQueryContended(QuestionCursor cursor) throws SQLException {
+        return queryQuestion(cursor.nextId());
+    }
+
+    @Benchmark
+    public Question bankCold(QuestionCursor cursor) throws SQLException {
+        QuestionBank bank = QuestionBank.getInstance();
+        bank.invalidate();
+        return bank.get(cursor.nextId());
+    }
+
+    @Benchmark
+    public Question bankCached(QuestionCursor cursor) throws SQLException {
+        return QuestionBank.getInstance().get(cursor.nextId());
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public Question bankCachedContended(QuestionCursor cursor) throws SQLException {
+        return QuestionBank.getInstance().get(cursor.nextId());
+    }
+
+    private static Question queryQuestion(int questionId) throws SQLException {
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT * FROM questions WHERE question_id = ?");
+            ps.setInt(1, questionId);
+            ResultSet rs = ps.executeQuery();
+            rs.next();
+            Question question = new Question(rs.getInt("question_id"), rs.getString("question_text"),
+                    rs.getString("option_a"), rs.getString("option_b"), rs.getString("option_c"),
+                    rs.getString("option_d"), rs.getInt("correct_option"));
+            rs.close();
+            ps.close();
+            return question;
+        }
+    }
+
+    /**
+     * Walks the question IDs round-robin, one cursor per thread
+     */
+    @State(Scope.Thread)
+    public static class QuestionCursor {
+        private int current;
+
+        int nextId() {
+            current = current % BenchmarkDatabase.QUESTION_COUNT + 1;
+            return current;
+        }
+    }
+}
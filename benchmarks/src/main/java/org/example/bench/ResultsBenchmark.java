@@ -0,0 +1,74 @@
+package org.example.bench;
+
+import org.example.DataAccess;
+import org.example.ResultDetailCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResultsBenchmark class - Cost of opening the results screen
+ * Compares the separate summary and answer queries with the single detail query
+ * ResultsFrame runs, and with reopening a result that is already cached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {BenchmarkDatabase.URL_ARG, BenchmarkDatabase.USER_ARG,
+        BenchmarkDatabase.PASSWORD_ARG, BenchmarkDatabase.JOURNAL_ARG})
+@State(Scope.Benchmark)
+public class ResultsBenchmark {
+    private int resultId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.ensureSchema();
+        int userId = BenchmarkDatabase.createUser("results");
+        resultId = BenchmarkDatabase.seedResults(userId, 50);
+    }
+
+    @Benchmark
+    public void summaryAndAttempts(Blackhole blackhole) throws SQLException {
+        load(blackhole);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public void summaryAndAttemptsContended(Blackhole blackhole) throws SQLException {
+        load(blackhole);
+    }
+
+    @Benchmark
+    public DataAccess.ResultDetail detailQuery() throws SQLException {
+        return DataAccess.loadResultDetail(resultId);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkDatabase.CONTENDED_THREADS)
+    public DataAccess.ResultDetail detailQueryContended() throws SQLException {
+        return DataAccess.loadResultDetail(resultId);
+    }
+
+    @Benchmark
+    public DataAccess.ResultDetail cachedDetail() throws SQLException {
+        return ResultDetailCache.getInstance().get(resultId);
+    }
+
+    private void load(Blackhole blackhole) throws SQLException {
+        blackhole.consume(DataAccess.loadResultSummary(resultId));
+        blackhole.consume(DataAccess.loadAttempts(resultId));
+    }
+}
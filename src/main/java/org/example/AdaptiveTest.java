@@ -0,0 +1,142 @@
+package org.example;
+
+/**
+ * AdaptiveTest class - Item selection and ability estimate of one adaptive test
+ * Each item is the one with the most Fisher information at the current ability estimate
+ * (see CatItemBank). The estimate is the expected a posteriori (EAP) ability over the
+ * CatItemBank grid with a standard normal prior, which stays finite even when every answer
+ * so far was right or wrong; its standard error is the posterior SD. The test stops once
+ * the standard error drops below iq.cat.seThreshold (after at least iq.cat.minQuestions
+ * items) or after iq.cat.maxQuestions items. Questions the candidate has seen before are
+ * avoided while the bank has others left. Not thread-safe; TestSession guards it.
+ */
+public final class AdaptiveTest {
+    public static final boolean ENABLED = Boolean.getBoolean("iq.cat.enabled");
+    public static final int MAX_QUESTIONS = Integer.getInteger("iq.cat.maxQuestions", 30);
+    static final int MIN_QUESTIONS = Integer.getInteger("iq.cat.minQuestions", 5);
+    static final double SE_THRESHOLD = Double.parseDouble(System.getProperty("iq.cat.seThreshold", "0.3"));
+
+    private final CatItemBank bank;
+    private final QuestionBitmap seen;
+    private final QuestionBitmap administered = new QuestionBitmap();
+    // Log of the unnormalized posterior at each grid point
+    private final double[] logPosterior = new double[CatItemBank.GRID_SIZE];
+    private int pendingItem = -1;
+    private int answered;
+    private double theta;
+    private double standardError;
+
+    /**
+     * @param seen Questions the candidate answered in earlier tests
+     */
+    public AdaptiveTest(CatItemBank bank, QuestionBitmap seen) {
+        this.bank = bank;
+        this.seen = seen;
+        for (int g = 0; g < logPosterior.length; g++) {
+            double gridTheta = CatItemBank.theta(g);
+            logPosterior[g] = -gridTheta * gridTheta / 2;
+        }
+        updateEstimate();
+    }
+
+    /**
+     * Picks the next item at the current estimate
+     * @return Its question ID
+     */
+    public int next() {
+        int item = bank.select(theta, id -> administered.contains(id) || seen.contains(id));
+        if (item < 0) {
+            // Seen everything that is left: allow repeats from earlier tests
+            item = bank.select(theta, administered::contains);
+        }
+        if (item < 0) {
+            throw new IllegalStateException("The item bank has no questions left for this test");
+        }
+        pendingItem = item;
+        administered.add(bank.id(item));
+        return bank.id(item);
+    }
+
+    /**
+     * Updates the estimate with the answer to the item last returned by next()
+     * @param correct False for wrong answers and timeouts
+     */
+    public void record(boolean correct) {
+        if (pendingItem < 0) {
+            throw new IllegalStateException("No item is waiting for an answer");
+        }
+        for (int g = 0; g < logPosterior.length; g++) {
+            double p = bank.probability(pendingItem, CatItemBank.theta(g));
+            logPosterior[g] += Math.log(correct ? p : 1 - p);
+        }
+        pendingItem = -1;
+        answered++;
+        updateEstimate();
+    }
+
+    /**
+     * @return Whether the test should end after the items answered so far
+     */
+    public boolean isDone() {
+        return answered >= MAX_QUESTIONS
+                || answered >= bank.size()
+                || (answered >= MIN_QUESTIONS && standardError < SE_THRESHOLD);
+    }
+
+    /**
+     * @return The estimate after the items answered so far
+     */
+    public Estimate estimate() {
+        return new Estimate(theta, standardError, answered);
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    public int getAnswered() {
+        return answered;
+    }
+
+    private void updateEstimate() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : logPosterior) {
+            max = Math.max(max, value);
+        }
+        double weightSum = 0;
+        double mean = 0;
+        double[] weights = new double[logPosterior.length];
+        for (int g = 0; g < logPosterior.length; g++) {
+            weights[g] = Math.exp(logPosterior[g] - max);
+            weightSum += weights[g];
+            mean += weights[g] * CatItemBank.theta(g);
+        }
+        mean /= weightSum;
+        double variance = 0;
+        for (int g = 0; g < logPosterior.length; g++) {
+            double deviation = CatItemBank.theta(g) - mean;
+            variance += weights[g] * deviation * deviation;
+        }
+        theta = mean;
+        standardError = Math.sqrt(variance / weightSum);
+    }
+
+    /**
+     * Final ability estimate of a finished adaptive test
+     */
+    public static final class Estimate {
+        public final double theta;
+        public final double standardError;
+        public final int questions;
+
+        public Estimate(double theta, double standardError, int questions) {
+            this.theta = theta;
+            this.standardError = standardError;
+            this.questions = questions;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * AsyncDataAccess class - Runs database work on virtual threads
+ * Every call returns immediately with a CompletableFuture; cancelling the future
+ * interrupts the virtual thread running the query. Use UiTasks to get results back
+ * onto the event dispatch thread.
+ */
+public final class AsyncDataAccess {
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private AsyncDataAccess() {
+    }
+
+    /**
+     * A unit of blocking database work
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * Runs a blocking call on its own virtual thread
+     */
+    public static <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> task = EXECUTOR.submit(() -> {
+            try {
+                future.complete(call.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return The virtual-thread executor, for callers that chain their own stages
+     */
+    public static Executor executor() {
+        return EXECUTOR;
+    }
+
+    public static CompletableFuture<Integer> authenticate(String username, String password) {
+        return submit(() -> DataAccess.authenticate(username, password));
+    }
+
+    public static CompletableFuture<Boolean> register(String username, String email, String password) {
+        return submit(() -> DataAccess.register(username, email, password));
+    }
+
+    /**
+     * Completes immediately, without a database call, when the result is already cached
+     */
+    public static CompletableFuture<DataAccess.ResultDetail> loadResultDetail(int resultId) {
+        DataAccess.ResultDetail cached = ResultDetailCache.getInstance().getIfCached(resultId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return submit(() -> ResultDetailCache.getInstance().get(resultId));
+    }
+
+    public static CompletableFuture<List<DataAccess.HistoryEntry>> loadHistory(int userId) {
+        return submit(() -> DataAccess.loadHistory(userId));
+    }
+
+    public static CompletableFuture<Integer> countHistory(int userId) {
+        return submit(() -> DataAccess.countHistory(userId));
+    }
+
+    public static CompletableFuture<List<DataAccess.HistoryEntry>> loadHistoryPage(int userId, DataAccess.HistoryEntry after,
+                                                                                   int skip, int limit) {
+        return submit(() -> DataAccess.loadHistoryPage(userId, after, skip, limit));
+    }
+
+    public static CompletableFuture<DataAccess.UserStats> loadUserStats(int userId) {
+        return submit(() -> DataAccess.loadUserStats(userId));
+    }
+}
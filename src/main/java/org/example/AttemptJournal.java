@@ -0,0 +1,511 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AttemptJournal class - Write-behind buffer for the attempts of one test
+ * Attempts are kept in memory and appended to a local spill file, then written with
+ * one JDBC batch per transaction at test completion (or every N answers / T seconds).
+ * Spill files left behind by a crash are replayed by recoverSpilled() on the next start.
+ * A live journal holds a lock on its spill file, so recovery - in this process or another
+ * one sharing the directory - leaves the files of running tests alone.
+ */
+public class AttemptJournal {
+    private static final String INSERT_ATTEMPT =
+            "INSERT INTO attempts(result_id, question_id, chosen_option, is_correct, response_ms) VALUES (?, ?, ?, ?, ?)";
+    // Only the first write of the final score counts towards user_stats; a replayed journal finds completed_on set
+    private static final String UPDATE_SCORE =
+            "UPDATE results SET score = ?, completed_on = ? WHERE result_id = ? AND completed_on IS NULL";
+    // An adaptive test ends after as many questions as it needed, not the maximum it was created with
+    private static final String UPDATE_ESTIMATE =
+            "UPDATE results SET ability = ?, ability_se = ?, total_questions = ?, iq_score = ? WHERE result_id = ?";
+
+    private static final Path SPILL_DIR = Paths.get(System.getProperty("iq.journal.dir",
+            Paths.get(System.getProperty("user.home"), ".iq-test", "journal").toString()));
+    // 0 disables the count and time based flushes; the test completion always flushes
+    private static final int FLUSH_EVERY = Integer.getInteger("iq.journal.flushEvery", 0);
+    private static final long FLUSH_INTERVAL_SECONDS = Long.getLong("iq.journal.flushIntervalSeconds", 0);
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "attempt-journal-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+    // Journals that still hold unwritten attempts or an unwritten score, flushed on a normal JVM exit
+    private static final Set<AttemptJournal> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (AttemptJournal journal : OPEN) {
+                try {
+                    journal.flush();
+                } catch (SQLException e) {
+                    // The spill file is still on disk and will be replayed next start
+                    Log.error("Could not flush attempt journal of result {} on exit", journal.resultId, e);
+                }
+            }
+        }, "attempt-journal-shutdown"));
+    }
+
+    private final int resultId;
+    private final Path spillFile;
+    private final List<Attempt> pending = new ArrayList<>();
+    private FileChannel spill;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean completed;
+    // Set by complete() until a write that included it has committed, so a failed completion is retried by the next flush
+    private Integer finalScore;
+    private AdaptiveTest.Estimate estimate;
+    private int[] questionOrder;
+
+    public AttemptJournal(int resultId) {
+        this.resultId = resultId;
+        this.spillFile = SPILL_DIR.resolve("result-" + resultId + ".journal");
+    }
+
+    /**
+     * Buffers one answered (or timed out) question
+     * @param responseMillis Time from showing the question to the answer
+     */
+    public synchronized void record(int questionId, String chosenOption, boolean correct, int responseMillis) {
+        if (completed) {
+            throw new IllegalStateException("Test " + resultId + " has already been completed");
+        }
+        pending.add(new Attempt(questionId, chosenOption, correct, responseMillis));
+        OPEN.add(this);
+        appendToSpill("A\t" + questionId + "\t" + chosenOption + "\t" + (correct ? 1 : 0) + "\t" + responseMillis);
+
+        if (FLUSH_EVERY > 0 && pending.size() >= FLUSH_EVERY) {
+            try {
+                flush();
+            } catch (SQLException e) {
+                // Kept in memory and on disk; retried on the next flush
+                Log.warn("Could not flush attempts of result {}", resultId, e);
+            }
+        } else if (FLUSH_INTERVAL_SECONDS > 0 && scheduledFlush == null) {
+            scheduledFlush = FLUSHER.schedule(this::flushQuietly, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes the remaining attempts and the final score in a single transaction
+     */
+    public synchronized void complete(int finalScore) throws SQLException {
+        complete(finalScore, null, null);
+    }
+
+    /**
+     * Like complete(int), also storing the ability estimate of an adaptive test and the order
+     * its questions were asked in
+     * @param estimate Final estimate, or null for a fixed-length test
+     * @param questionOrder Question ID at each position of an adaptive test, or null
+     */
+    public synchronized void complete(int finalScore, AdaptiveTest.Estimate estimate, int[] questionOrder) throws SQLException {
+        if (!completed) {
+            appendToSpill(estimate == null ? "S\t" + finalScore
+                    : "S\t" + finalScore + "\t" + estimate.theta + "\t" + estimate.standardError + "\t" + estimate.questions
+                    + "\t" + joinIds(questionOrder));
+            completed = true;
+            this.finalScore = finalScore;
+            this.estimate = estimate;
+            this.questionOrder = questionOrder;
+            OPEN.add(this);
+        }
+        write();
+    }
+
+    /**
+     * Writes the buffered attempts of a test that will not be completed and releases its spill
+     * file; if the write fails the file stays on disk and is replayed on the next start
+     */
+    public synchronized void abandon() throws SQLException {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        try {
+            write();
+        } finally {
+            OPEN.remove(this);
+        }
+        // As completed, write() deletes it only when there was something to write
+        deleteSpill();
+    }
+
+    /**
+     * Writes the buffered attempts now, in one batched transaction
+     */
+    public synchronized void flush() throws SQLException {
+        write();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            Log.warn("Could not flush attempts of result {}", resultId, e);
+        }
+    }
+
+    private void write() throws SQLException {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty() && finalScore == null) {
+            return;
+        }
+
+        writeBatch(resultId, pending, finalScore, estimate, questionOrder);
+
+        pending.clear();
+        finalScore = null;
+        OPEN.remove(this);
+        // The spill file only goes once the score it holds is stored
+        if (completed) {
+            deleteSpill();
+        } else {
+            truncateSpill();
+        }
+    }
+
+    private static void writeBatch(int resultId, List<Attempt> attempts, Integer finalScore,
+                                   AdaptiveTest.Estimate estimate, int[] questionOrder) throws SQLException {
+        TestEvents.AttemptPersist event = new TestEvents.AttemptPersist();
+        event.begin();
+        boolean stored = false;
+        Completion completion = null;
+        Connection conn = DataAccess.connect();
+        try {
+            conn.setAutoCommit(false);
+            if (!attempts.isEmpty()) {
+                PreparedStatement ps = conn.prepareStatement(INSERT_ATTEMPT);
+                for (Attempt attempt : attempts) {
+                    ps.setInt(1, resultId);
+                    ps.setInt(2, attempt.questionId);
+                    ps.setString(3, attempt.chosenOption);
+                    ps.setBoolean(4, attempt.correct);
+                    if (attempt.responseMillis < 0) {
+                        ps.setNull(5, Types.INTEGER);
+                    } else {
+                        ps.setInt(5, attempt.responseMillis);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+            if (finalScore != null) {
+                Timestamp completedOn = Timestamp.valueOf(LocalDateTime.now());
+                PreparedStatement ps = conn.prepareStatement(UPDATE_SCORE);
+                ps.setInt(1, finalScore);
+                ps.setTimestamp(2, completedOn);
+                ps.setInt(3, resultId);
+                boolean firstCompletion = ps.executeUpdate() > 0;
+                ps.close();
+                if (firstCompletion) {
+                    if (estimate != null) {
+                        storeEstimate(conn, resultId, estimate);
+                    }
+                    // Committed with completed_on, so a completed adaptive result always has its order
+                    if (questionOrder != null) {
+                        DataAccess.saveQuestionOrder(conn, resultId, questionOrder);
+                    }
+                    completion = loadCompletion(conn, resultId);
+                    if (completion != null) {
+                        UserStatsRollup.recordCompletion(conn, completion.userId, completion.totalQuestions, finalScore, completedOn);
+                        SeenQuestions.recordCompletion(conn, completion.userId, resultId, completedOn);
+                        ResponseTimes.recordCompletion(conn, completion.userId, resultId, completedOn);
+                        // Adaptive scores are scored from the ability estimate and kept out of the norms
+                        if (estimate == null) {
+                            NormingEngine.getInstance().scoreCompletion(conn, resultId, finalScore, completion.totalQuestions);
+                        }
+                    }
+                }
+            }
+            conn.commit();
+            stored = true;
+            if (completion != null && estimate == null) {
+                RankingService.getInstance().record(resultId, completion.userId, completion.username,
+                        finalScore, completion.totalQuestions);
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+            conn.close();
+            if (event.shouldCommit()) {
+                event.resultId = resultId;
+                event.attempts = attempts.size();
+                event.finalScore = finalScore == null ? -1 : finalScore;
+                event.stored = stored;
+                event.commit();
+            }
+        }
+    }
+
+    private static void storeEstimate(Connection conn, int resultId, AdaptiveTest.Estimate estimate) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(UPDATE_ESTIMATE);
+        ps.setDouble(1, estimate.theta);
+        ps.setDouble(2, estimate.standardError);
+        ps.setInt(3, estimate.questions);
+        ps.setInt(4, NormingEngine.abilityIq(estimate.theta));
+        ps.setInt(5, resultId);
+        ps.executeUpdate();
+        ps.close();
+    }
+
+    private static Completion loadCompletion(Connection conn, int resultId) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement("SELECT r.user_id, r.total_questions, u.username " +
+                "FROM results r LEFT JOIN users u ON u.user_id = r.user_id WHERE r.result_id = ?");
+        ps.setInt(1, resultId);
+        ResultSet rs = ps.executeQuery();
+        Completion completion = null;
+        if (rs.next()) {
+            completion = new Completion(rs.getInt("user_id"), rs.getInt("total_questions"), rs.getString("username"));
+        }
+        rs.close();
+        ps.close();
+        return completion;
+    }
+
+    private void appendToSpill(String line) {
+        try {
+            if (spill == null) {
+                Files.createDirectories(SPILL_DIR);
+                spill = FileChannel.open(spillFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                // Released when the channel is closed
+                if (tryLock(spill) == null) {
+                    Log.warn("Could not lock attempt journal {}", spillFile);
+                }
+            }
+            spill.write(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+            spill.force(false);
+        } catch (IOException e) {
+            // The attempt is still buffered in memory; only crash safety is lost
+            Log.warn("Could not write attempt journal {}", spillFile, e);
+        }
+    }
+
+    private void truncateSpill() {
+        try {
+            if (spill != null) {
+                spill.truncate(0);
+                spill.force(false);
+            }
+        } catch (IOException e) {
+            Log.warn("Could not truncate attempt journal {}", spillFile, e);
+        }
+    }
+
+    /**
+     * Deletes the spill file before closing it, so recovery cannot pick it up in between
+     */
+    private void deleteSpill() {
+        try {
+            Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            Log.warn("Could not delete attempt journal {}", spillFile, e);
+        }
+        closeSpill();
+    }
+
+    private void closeSpill() {
+        try {
+            if (spill != null) {
+                spill.close();
+                spill = null;
+            }
+        } catch (IOException e) {
+            Log.warn("Could not close attempt journal {}", spillFile, e);
+        }
+    }
+
+    /**
+     * Replays spill files left behind by a crashed or killed session
+     */
+    public static void recoverSpilled() {
+        if (!Files.isDirectory(SPILL_DIR)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(SPILL_DIR, "result-*.journal")) {
+            for (Path file : files) {
+                try {
+                    recover(file);
+                } catch (IOException | SQLException | RuntimeException e) {
+                    Log.error("Could not recover attempt journal {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            Log.error("Could not list attempt journals in {}", SPILL_DIR, e);
+        }
+    }
+
+    private static void recover(Path file) throws IOException, SQLException {
+        String name = file.getFileName().toString();
+        int resultId = Integer.parseInt(name.substring("result-".length(), name.length() - ".journal".length()));
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            // Completed by its live journal since the directory was listed
+            return;
+        }
+        try (channel) {
+            if (tryLock(channel) == null) {
+                // Spill file of a test still running here or in another process
+                return;
+            }
+            replay(file, resultId, channel);
+        }
+    }
+
+    private static void replay(Path file, int resultId, FileChannel channel) throws IOException, SQLException {
+        List<Attempt> attempts = new ArrayList<>();
+        Integer finalScore = null;
+        AdaptiveTest.Estimate estimate = null;
+        int[] questionOrder = null;
+        // Read through the locked channel, which on Windows also keeps out other readers; the
+        // reader is not closed, as that would close the channel and drop the lock too early
+        BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split("\t");
+            // A torn last line from a crash mid-write is skipped; journals from before response times have 4 fields
+            if (parts[0].equals("A") && (parts.length == 4 || parts.length == 5)) {
+                attempts.add(new Attempt(Integer.parseInt(parts[1]), parts[2], parts[3].equals("1"),
+                        parts.length == 5 ? Integer.parseInt(parts[4]) : -1));
+            } else if (parts[0].equals("S") && parts.length == 2) {
+                finalScore = Integer.parseInt(parts[1]);
+            } else if (parts[0].equals("S") && (parts.length == 5 || parts.length == 6)) {
+                finalScore = Integer.parseInt(parts[1]);
+                estimate = new AdaptiveTest.Estimate(Double.parseDouble(parts[2]),
+                        Double.parseDouble(parts[3]), Integer.parseInt(parts[4]));
+                // Journals written before the order was kept have 5 fields
+                questionOrder = parts.length == 6 ? parseIds(parts[5]) : null;
+            }
+        }
+
+        // A crash between commit and truncating the file must not insert the same attempts twice
+        Set<Integer> stored = loadStoredQuestions(resultId);
+        attempts.removeIf(attempt -> stored.contains(attempt.questionId));
+
+        writeBatch(resultId, attempts, finalScore, estimate, questionOrder);
+        Files.delete(file);
+    }
+
+    /**
+     * @return Lock on the whole file, or null if another journal or process holds one
+     */
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by a journal of this process
+            return null;
+        }
+    }
+
+    private static String joinIds(int[] ids) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; ids != null && i < ids.length; i++) {
+            if (i > 0) {
+                joined.append(',');
+            }
+            joined.append(ids[i]);
+        }
+        return joined.toString();
+    }
+
+    private static int[] parseIds(String joined) {
+        if (joined.isEmpty()) {
+            return null;
+        }
+        String[] parts = joined.split(",");
+        int[] ids = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ids[i] = Integer.parseInt(parts[i]);
+        }
+        return ids;
+    }
+
+    private static Set<Integer> loadStoredQuestions(int resultId) throws SQLException {
+        Set<Integer> stored = new HashSet<>();
+        try (Connection conn = DataAccess.connect()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT question_id FROM attempts WHERE result_id = ?");
+            ps.setInt(1, resultId);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                stored.add(rs.getInt(1));
+            }
+            rs.close();
+            ps.close();
+        }
+        return stored;
+    }
+
+    /**
+     * One buffered row of the attempts table
+     */
+    private static final class Attempt {
+        final int questionId;
+        final String chosenOption;
+        final boolean correct;
+        // -1 when not known
+        final int responseMillis;
+
+        Attempt(int questionId, String chosenOption, boolean correct, int responseMillis) {
+            this.questionId = questionId;
+            this.chosenOption = chosenOption;
+            this.correct = correct;
+            this.responseMillis = responseMillis;
+        }
+    }
+
+    /**
+     * Owner and length of a result whose final score was just stored
+     */
+    private static final class Completion {
+        final int userId;
+        final int totalQuestions;
+        final String username;
+
+        Completion(int userId, int totalQuestions, String username) {
+            this.userId = userId;
+            this.totalQuestions = totalQuestions;
+            this.username = username;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * CatItemBank class - IRT parameters of the question bank, indexed for adaptive item selection
+ * Every question is an item of the three-parameter logistic model
+ * P(correct | theta) = c + (1 - c) / (1 + exp(-D a (theta - b))), with D = 1.7 so that a and b
+ * read like normal-ogive parameters; c = 0 makes it the two-parameter model. The Fisher
+ * information of every item is computed once over a grid of abilities and, for each grid
+ * point, the iq.cat.candidates most informative items are kept best first. Picking the next
+ * item walks that short list at the grid point nearest the current estimate, so it costs
+ * the same for ten thousand items as for ten. A repeat taker who has seen a whole list gets
+ * an exact search instead of a scan of the bank: the items are split into bands of similar
+ * discrimination, each sorted by difficulty and walked outwards from the estimate until no
+ * item that far away could be more informative than the best found (a bound that follows
+ * from the band's largest discrimination). Bands too flat to beat the best found are
+ * skipped outright. Immutable once built.
+ */
+public final class CatItemBank {
+    static final double D = 1.7;
+    static final double THETA_MIN = -4;
+    static final double THETA_MAX = 4;
+    static final double THETA_STEP = 0.1;
+    static final int GRID_SIZE = (int) Math.round((THETA_MAX - THETA_MIN) / THETA_STEP) + 1;
+    private static final int CANDIDATES = Integer.getInteger("iq.cat.candidates", 256);
+    // x^2 s(x) (1 - s(x)), s the logistic function, peaks at PEAK_X; it bounds the information
+    // of every item at distance d from its difficulty by PEAK_INFO / d^2, whatever its discrimination
+    private static final double PEAK_X = 2.399357;
+    private static final double PEAK_INFO = PEAK_X * PEAK_X * logisticSlope(PEAK_X);
+    private static final int BANDS = 16;
+
+    private final int[] ids;
+    private final double[] a;
+    private final double[] b;
+    private final double[] c;
+    // Item indexes by grid point, most informative first
+    private final int[][] candidates;
+    // Items split by discrimination, steepest band first
+    private final Band[] bands;
+
+    /**
+     * @param ids Question ID of each item
+     * @param a Discrimination of each item
+     * @param b Difficulty of each item, on the ability scale
+     * @param c Guessing (lower asymptote) of each item, 0 for the two-parameter model
+     */
+    public CatItemBank(int[] ids, double[] a, double[] b, double[] c) {
+        this.ids = ids.clone();
+        this.a = a.clone();
+        this.b = b.clone();
+        this.c = c.clone();
+        int[] byDiscrimination = IntStream.range(0, ids.length).boxed()
+                .sorted((x, y) -> Double.compare(this.a[y], this.a[x]))
+                .mapToInt(Integer::intValue).toArray();
+        int bandCount = Math.min(BANDS, ids.length);
+        bands = new Band[bandCount];
+        for (int band = 0; band < bandCount; band++) {
+            int from = (int) ((long) ids.length * band / bandCount);
+            int to = (int) ((long) ids.length * (band + 1) / bandCount);
+            bands[band] = new Band(Arrays.copyOfRange(byDiscrimination, from, to), this.a, this.b);
+        }
+        candidates = new int[GRID_SIZE][];
+        // Grid points are independent; spread the bank-sized scans over the cores
+        IntStream.range(0, GRID_SIZE).parallel().forEach(g -> candidates[g] = mostInformative(theta(g)));
+    }
+
+    /**
+     * @return Indexes of the CANDIDATES items with the most information at theta, best first
+     */
+    private int[] mostInformative(double theta) {
+        int keep = Math.min(CANDIDATES, ids.length);
+        // Min-heap of the best items so far; most items fall below its root at once
+        double[] heapInfo = new double[keep];
+        int[] heapItems = new int[keep];
+        int kept = 0;
+        for (int item = 0; item < ids.length; item++) {
+            double info = information(item, theta);
+            if (kept < keep) {
+                int at = kept++;
+                while (at > 0 && heapInfo[(at - 1) / 2] > info) {
+                    heapInfo[at] = heapInfo[(at - 1) / 2];
+                    heapItems[at] = heapItems[(at - 1) / 2];
+                    at = (at - 1) / 2;
+                }
+                heapInfo[at] = info;
+                heapItems[at] = item;
+            } else if (info > heapInfo[0]) {
+                int at = 0;
+                while (true) {
+                    int child = 2 * at + 1;
+                    if (child >= keep) {
+                        break;
+                    }
+                    if (child + 1 < keep && heapInfo[child + 1] < heapInfo[child]) {
+                        child++;
+                    }
+                    if (heapInfo[child] >= info) {
+                        break;
+                    }
+                    heapInfo[at] = heapInfo[child];
+                    heapItems[at] = heapItems[child];
+                    at = child;
+                }
+                heapInfo[at] = info;
+                heapItems[at] = item;
+            }
+        }
+        // Best first; ties keep the lower item index, as the order of the bank would
+        Integer[] order = new Integer[kept];
+        for (int i = 0; i < kept; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> heapInfo[x] != heapInfo[y]
+                ? Double.compare(heapInfo[y], heapInfo[x]) : Integer.compare(heapItems[x], heapItems[y]));
+        int[] best = new int[kept];
+        for (int i = 0; i < kept; i++) {
+            best[i] = heapItems[order[i]];
+        }
+        return best;
+    }
+
+    /**
+     * Item bank with the parameters migration V7 gives questions that have not been calibrated:
+     * a = 1, b from the difficulty band (1-5 map to -1.5 .. 1.5), c = 0
+     */
+    public static CatItemBank uncalibrated(Collection<Question> questions) {
+        int[] ids = new int[questions.size()];
+        double[] a = new double[ids.length];
+        double[] b = new double[ids.length];
+        double[] c = new double[ids.length];
+        int item = 0;
+        for (Question question : questions) {
+            ids[item] = question.getId();
+            a[item] = 1;
+            b[item] = (question.getDifficulty() - 3) * 0.75;
+            item++;
+        }
+        return new CatItemBank(ids, a, b, c);
+    }
+
+    /**
+     * @return Number of items
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return Question ID of an item
+     */
+    public int id(int item) {
+        return ids[item];
+    }
+
+    /**
+     * @return Probability that a candidate of ability theta answers the item correctly
+     */
+    public double probability(int item, double theta) {
+        return c[item] + (1 - c[item]) / (1 + Math.exp(-D * a[item] * (theta - b[item])));
+    }
+
+    /**
+     * @return Fisher information of the item at ability theta
+     */
+    public double information(int item, double theta) {
+        double p = probability(item, theta);
+        double guessing = c[item];
+        double scaled = D * a[item] * (p - guessing) / (1 - guessing);
+        return scaled * scaled * (1 - p) / p;
+    }
+
+    /**
+     * Picks the most informative item at theta among those not excluded
+     * @param excluded Tells whether a question ID may not be given
+     * @return Item index, or -1 if every item is excluded
+     */
+    public int select(double theta, IntPredicate excluded) {
+        for (int item : candidates[gridIndex(theta)]) {
+            if (!excluded.test(ids[item])) {
+                return item;
+            }
+        }
+        // Every listed candidate was excluded: search the bands exactly, steepest first, since
+        // a good item found early lets the flatter bands be skipped
+        int best = -1;
+        double bestInfo = -1;
+        for (Band band : bands) {
+            double reach = band.reach(bestInfo);
+            int upper = Arrays.binarySearch(band.b, theta);
+            upper = upper < 0 ? -upper - 1 : upper;
+            int lower = upper - 1;
+            while (lower >= 0 || upper < band.b.length) {
+                boolean down = upper >= band.b.length || (lower >= 0 && theta - band.b[lower] <= band.b[upper] - theta);
+                int position = down ? lower-- : upper++;
+                // Every item left in the band is at least this far from theta
+                if (Math.abs(theta - band.b[position]) >= reach) {
+                    break;
+                }
+                int item = band.items[position];
+                if (!excluded.test(ids[item])) {
+                    double info = information(item, theta);
+                    if (info > bestInfo) {
+                        bestInfo = info;
+                        best = item;
+                        reach = band.reach(bestInfo);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double logisticSlope(double x) {
+        double p = 1 / (1 + Math.exp(-x));
+        return p * (1 - p);
+    }
+
+    /**
+     * Items of similar discrimination, sorted by difficulty
+     */
+    private static final class Band {
+        final int[] items;
+        final double[] b;
+        final double maxA;
+
+        Band(int[] items, double[] allA, double[] allB) {
+            this.items = IntStream.of(items).boxed()
+                    .sorted((x, y) -> Double.compare(allB[x], allB[y]))
+                    .mapToInt(Integer::intValue).toArray();
+            b = new double[items.length];
+            double steepest = 0;
+            for (int i = 0; i < items.length; i++) {
+                b[i] = allB[this.items[i]];
+                steepest = Math.max(steepest, allA[this.items[i]]);
+            }
+            maxA = steepest;
+        }
+
+        /**
+         * The information of an item at distance d from its difficulty is at most
+         * D^2 a^2 s(x) (1 - s(x)) with x = D a d (guessing only lowers it). Below PEAK_X that grows
+         * with a, so maxA bounds the band; beyond it, PEAK_INFO / d^2 bounds every item.
+         * @return Distance from theta beyond which no item of the band has more than this information
+         */
+        double reach(double information) {
+            if (information < 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double slope = D * maxA;
+            if (information >= slope * slope * logisticSlope(PEAK_X)) {
+                // Inverts s(x) (1 - s(x)) = information / slope^2
+                double y = information / (slope * slope);
+                if (y >= 0.25) {
+                    return 0;
+                }
+                double p = (1 + Math.sqrt(1 - 4 * y)) / 2;
+                return Math.log(p / (1 - p)) / slope;
+            }
+            return Math.sqrt(PEAK_INFO / information);
+        }
+    }
+
+    static double theta(int gridIndex) {
+        return THETA_MIN + gridIndex * THETA_STEP;
+    }
+
+    static int gridIndex(double theta) {
+        int index = (int) Math.round((theta - THETA_MIN) / THETA_STEP);
+        return Math.max(0, Math.min(GRID_SIZE - 1, index));
+    }
+}
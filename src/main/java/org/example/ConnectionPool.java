@@ -0,0 +1,377 @@
+package org.example;
+
+import java.lang.ref.Cleaner;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ConnectionPool class - Bounded pool of physical JDBC connections
+ * Hands out proxy connections whose close() returns the connection to the pool,
+ * validates on borrow, evicts idle connections and reports/reclaims leaked ones
+ */
+class ConnectionPool {
+    // Connections used within this window are trusted without a validation round trip
+    private static final long VALIDATION_GRACE_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 5_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final long leakReclaimMillis;
+
+    // One permit per connection that may be leased at the same time
+    private final Semaphore permits;
+    // Idle connections, most recently returned first (guarded by "idle")
+    private final Deque<PhysicalConnection> idle = new ArrayDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger physicalCount = new AtomicInteger();
+    private final Cleaner cleaner = Cleaner.create();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    ConnectionPool(String url, String user, String password, int minIdle, int maxSize,
+                   long idleTimeoutMillis, long borrowTimeoutMillis,
+                   long leakThresholdMillis, long leakReclaimMillis) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.leakReclaimMillis = leakReclaimMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout when the pool is exhausted
+     * @return Proxy connection; closing it returns the physical connection to the pool
+     */
+    Connection borrow() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PhysicalConnection physical = takeValidIdle();
+            if (physical == null) {
+                physical = open();
+            }
+            return lease(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes idle connections and stops housekeeping; leased connections are closed when returned
+     */
+    void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PhysicalConnection physical : idle) {
+                discard(physical);
+            }
+            idle.clear();
+        }
+    }
+
+    int getActiveCount() {
+        return leased.size();
+    }
+
+    int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    private PhysicalConnection takeValidIdle() {
+        while (true) {
+            PhysicalConnection physical;
+            synchronized (idle) {
+                physical = idle.pollFirst();
+            }
+            if (physical == null) {
+                return null;
+            }
+            if (isUsable(physical)) {
+                return physical;
+            }
+            discard(physical);
+        }
+    }
+
+    private boolean isUsable(PhysicalConnection physical) {
+        try {
+            if (physical.connection.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - physical.lastUsed <= VALIDATION_GRACE_MILLIS) {
+                return true;
+            }
+            return physical.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PhysicalConnection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        physicalCount.incrementAndGet();
+        return new PhysicalConnection(connection);
+    }
+
+    private void discard(PhysicalConnection physical) {
+        physicalCount.decrementAndGet();
+        try {
+            physical.connection.close();
+        } catch (SQLException ignored) {
+            // Connection is being thrown away anyway
+        }
+    }
+
+    private Connection lease(PhysicalConnection physical) {
+        Lease lease = new Lease(physical, new Throwable("Connection borrowed by thread " + Thread.currentThread().getName()));
+        Connection proxy = (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, lease);
+        // The cleaning action must only reference the lease, never the proxy itself
+        lease.cleanable = cleaner.register(proxy, lease::reclaimUnreachable);
+        leased.add(lease);
+        return proxy;
+    }
+
+    private void giveBack(Lease lease, boolean broken) {
+        leased.remove(lease);
+        PhysicalConnection physical = lease.physical;
+        closeStatements(lease);
+
+        boolean reusable = !broken && !shutdown;
+        if (reusable) {
+            try {
+                if (!physical.connection.getAutoCommit()) {
+                    physical.connection.rollback();
+                    physical.connection.setAutoCommit(true);
+                }
+                reusable = !physical.connection.isClosed();
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            physical.lastUsed = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.addFirst(physical);
+            }
+        } else {
+            discard(physical);
+        }
+        permits.release();
+    }
+
+    private void closeStatements(Lease lease) {
+        // Call sites that forget ps.close() would otherwise keep server-side cursors open
+        synchronized (lease.statements) {
+            for (Statement statement : lease.statements) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                    // Best effort cleanup
+                }
+            }
+            lease.statements.clear();
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            evictIdle(now);
+            detectLeaks(now);
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            Log.error("Connection pool housekeeping failed", e);
+        }
+    }
+
+    private void evictIdle(long now) {
+        List<PhysicalConnection> evicted = new ArrayList<>();
+        synchronized (idle) {
+            // Oldest idle connections sit at the tail of the deque
+            Iterator<PhysicalConnection> it = idle.descendingIterator();
+            while (it.hasNext() && physicalCount.get() - evicted.size() > minIdle) {
+                PhysicalConnection physical = it.next();
+                if (now - physical.lastUsed < idleTimeoutMillis) {
+                    break;
+                }
+                it.remove();
+                evicted.add(physical);
+            }
+        }
+        for (PhysicalConnection physical : evicted) {
+            discard(physical);
+        }
+    }
+
+    private void detectLeaks(long now) {
+        for (Lease lease : leased) {
+            long heldMillis = now - lease.borrowedAt;
+            if (heldMillis >= leakReclaimMillis) {
+                Log.warn("Reclaiming database connection held for {} ms", heldMillis, lease.borrower);
+                lease.forceReturn();
+            } else if (heldMillis >= leakThresholdMillis && lease.leakReported.compareAndSet(false, true)) {
+                Log.warn("Possible connection leak, held for {} ms", heldMillis, lease.borrower);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!shutdown && getIdleCount() < minIdle && physicalCount.get() < maxSize) {
+            try {
+                PhysicalConnection physical = open();
+                synchronized (idle) {
+                    idle.addLast(physical);
+                }
+            } catch (SQLException e) {
+                // Database unavailable - try again on the next run
+                return;
+            }
+        }
+    }
+
+    /**
+     * A physical connection and the time it was last handed back
+     */
+    private static final class PhysicalConnection {
+        final Connection connection;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PhysicalConnection(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * One borrow of a physical connection; also the invocation handler of its proxy
+     */
+    private final class Lease implements InvocationHandler {
+        final PhysicalConnection physical;
+        final Throwable borrower;
+        final long borrowedAt = System.currentTimeMillis();
+        final List<Statement> statements = new ArrayList<>();
+        final AtomicBoolean returned = new AtomicBoolean();
+        final AtomicBoolean leakReported = new AtomicBoolean();
+        Cleaner.Cleanable cleanable;
+
+        Lease(PhysicalConnection physical, Throwable borrower) {
+            this.physical = physical;
+            this.borrower = borrower;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        cleanable.clean();
+                        giveBack(this, false);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || physical.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical.connection + "]";
+                default:
+                    break;
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(physical.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                synchronized (statements) {
+                    statements.add((Statement) result);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Runs on the cleaner thread when a proxy became unreachable without close()
+         */
+        void reclaimUnreachable() {
+            if (returned.compareAndSet(false, true)) {
+                Log.warn("Reclaiming database connection that was never closed", borrower);
+                giveBack(this, false);
+            }
+        }
+
+        void forceReturn() {
+            if (returned.compareAndSet(false, true)) {
+                cleanable.clean();
+                // The borrower may still be mid-statement, so the physical connection is not reused
+                giveBack(this, true);
+            }
+        }
+    }
+}
@@ -2,22 +2,47 @@ package org.example;
 
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBConnection {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/iq_test";
-    private static final String USER = "root";
-    private static final String PASSWORD = "FF44GG55";
+    private static final String URL = System.getProperty("iq.db.url", "jdbc:mysql://localhost:3306/iq_test");
+    private static final String USER = System.getProperty("iq.db.user", "root");
+    private static final String PASSWORD = System.getProperty("iq.db.password", "FF44GG55");
 
+    // Pool settings, overridable with -Diq.pool.* system properties
+    private static final int MIN_IDLE = Integer.getInteger("iq.pool.minIdle", 2);
+    private static final int MAX_SIZE = Integer.getInteger("iq.pool.maxSize", 10);
+    private static final long IDLE_TIMEOUT_MILLIS = Long.getLong("iq.pool.idleTimeoutMillis", 300_000);
+    private static final long BORROW_TIMEOUT_MILLIS = Long.getLong("iq.pool.borrowTimeoutMillis", 5_000);
+    private static final long LEAK_THRESHOLD_MILLIS = Long.getLong("iq.pool.leakThresholdMillis", 30_000);
+    private static final long LEAK_RECLAIM_MILLIS = Long.getLong("iq.pool.leakReclaimMillis", 600_000);
+
+    // Per-statement timings (see SqlStatistics); -Diq.sql.instrument=false hands out bare pooled connections
+    private static final boolean INSTRUMENT = Boolean.parseBoolean(System.getProperty("iq.sql.instrument", "true"));
+
+    private static final ConnectionPool POOL = new ConnectionPool(URL, USER, PASSWORD,
+            MIN_IDLE, MAX_SIZE, IDLE_TIMEOUT_MILLIS, BORROW_TIMEOUT_MILLIS,
+            LEAK_THRESHOLD_MILLIS, LEAK_RECLAIM_MILLIS);
+
+    /**
+     * Borrows a pooled, instrumented connection; close() hands it back to the pool
+     * @return Connection, or null if none could be obtained
+     */
     public static Connection getConnection() {
         try {
-            return DriverManager.getConnection(URL, USER, PASSWORD);
+            Connection connection = POOL.borrow();
+            return INSTRUMENT ? InstrumentedJdbc.connection(connection) : connection;
         } catch (SQLException e) {
-            e.printStackTrace();
+            Log.error("Could not get a database connection", e);
             return null;
         }
     }
-}
 
+    /**
+     * Closes all idle pooled connections, e.g. before the JVM exits
+     */
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+}
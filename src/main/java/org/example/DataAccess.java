@@ -0,0 +1,476 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataAccess class - Blocking JDBC queries used by the frames
+ * Never call these on the event dispatch thread; go through AsyncDataAccess instead
+ */
+public final class DataAccess {
+
+    private DataAccess() {
+    }
+
+    /**
+     * Checks a username/password pair
+     * @return The user's ID, or null if the credentials are wrong
+     */
+    public static Integer authenticate(String username, String password) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT user_id FROM users WHERE username = ? AND password = ?");
+            ps.setString(1, username);
+            ps.setString(2, password);
+            ResultSet rs = ps.executeQuery();
+            Integer userId = rs.next() ? rs.getInt("user_id") : null;
+            rs.close();
+            ps.close();
+            return userId;
+        }
+    }
+
+    /**
+     * Creates a new account
+     * @return false if the username is already taken
+     */
+    public static boolean register(String username, String email, String password) throws SQLException {
+        try (Connection conn = connect()) {
+            // Check if username exists
+            PreparedStatement checkPs = conn.prepareStatement("SELECT user_id FROM users WHERE username = ?");
+            checkPs.setString(1, username);
+            ResultSet rs = checkPs.executeQuery();
+            boolean exists = rs.next();
+            rs.close();
+            checkPs.close();
+            if (exists) {
+                return false;
+            }
+
+            PreparedStatement ps = conn.prepareStatement("INSERT INTO users(username, email, password) VALUES (?, ?, ?)");
+            ps.setString(1, username);
+            ps.setString(2, email);
+            ps.setString(3, password);
+            ps.executeUpdate();
+            ps.close();
+            return true;
+        }
+    }
+
+    /**
+     * Inserts the results row for a new test (score 0 until completion)
+     * @return Generated result ID
+     */
+    public static int createResult(int userId, int totalQuestions) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO results(user_id, score, total_questions, date_taken) VALUES (?, 0, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS
+            );
+            ps.setInt(1, userId);
+            ps.setInt(2, totalQuestions);
+            ps.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            ps.executeUpdate();
+
+            ResultSet rs = ps.getGeneratedKeys();
+            if (!rs.next()) {
+                throw new SQLException("No result ID generated for user " + userId);
+            }
+            int resultId = rs.getInt(1);
+            rs.close();
+            ps.close();
+            return resultId;
+        }
+    }
+
+    /**
+     * Stores the questions drawn for a test in the order they are asked
+     * @param questionIds Question ID at each position
+     */
+    public static void saveQuestionOrder(int resultId, int[] questionIds) throws SQLException {
+        try (Connection conn = connect()) {
+            saveQuestionOrder(conn, resultId, questionIds);
+        }
+    }
+
+    /**
+     * Like saveQuestionOrder(int, int[]), on the caller's connection and transaction
+     */
+    static void saveQuestionOrder(Connection conn, int resultId, int[] questionIds) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO result_questions(result_id, question_no, question_id) VALUES (?, ?, ?)");
+        for (int i = 0; i < questionIds.length; i++) {
+            ps.setInt(1, resultId);
+            ps.setInt(2, i + 1);
+            ps.setInt(3, questionIds[i]);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        ps.close();
+    }
+
+    /**
+     * @return Score summary of one result, or null if it does not exist
+     */
+    public static ResultSummary loadResultSummary(int resultId) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "SELECT user_id, score, total_questions, date_taken, ability, ability_se FROM results WHERE result_id = ?");
+            ps.setInt(1, resultId);
+            ResultSet rs = ps.executeQuery();
+            ResultSummary summary = null;
+            if (rs.next()) {
+                summary = readSummary(rs);
+            }
+            rs.close();
+            ps.close();
+            return summary;
+        }
+    }
+
+    /**
+     * @return Every answer of one result, ordered by question
+     */
+    public static List<AttemptRow> loadAttempts(int resultId) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "SELECT a.question_id, a.chosen_option, a.is_correct, q.question_text, q.correct_option " +
+                            "FROM attempts a JOIN questions q ON a.question_id = q.question_id " +
+                            "WHERE a.result_id = ? ORDER BY a.question_id"
+            );
+            ps.setInt(1, resultId);
+            ResultSet rs = ps.executeQuery();
+
+            List<AttemptRow> rows = new ArrayList<>();
+            while (rs.next()) {
+                rows.add(new AttemptRow(
+                        rs.getInt("question_id"),
+                        rs.getString("chosen_option"),
+                        rs.getInt("correct_option"),
+                        rs.getBoolean("is_correct")));
+            }
+            rs.close();
+            ps.close();
+            return rows;
+        }
+    }
+
+    /**
+     * Loads the score and every answer of one result in a single round trip
+     * @return The result with its answers in the order they were asked (by question for
+     *         tests older than result_questions), or null if it does not exist
+     */
+    public static ResultDetail loadResultDetail(int resultId) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "SELECT r.user_id, r.score, r.total_questions, r.date_taken, r.ability, r.ability_se, r.completed_on, " +
+                            "a.question_id, a.chosen_option, a.is_correct, q.correct_option " +
+                            "FROM results r " +
+                            "LEFT JOIN attempts a ON a.result_id = r.result_id " +
+                            "LEFT JOIN questions q ON a.question_id = q.question_id " +
+                            "LEFT JOIN result_questions rq ON rq.result_id = a.result_id AND rq.question_id = a.question_id " +
+                            "WHERE r.result_id = ? ORDER BY rq.question_no, a.question_id"
+            );
+            ps.setInt(1, resultId);
+            ResultSet rs = ps.executeQuery();
+
+            ResultSummary summary = null;
+            Timestamp completedOn = null;
+            List<AttemptRow> rows = new ArrayList<>();
+            while (rs.next()) {
+                if (summary == null) {
+                    summary = readSummary(rs);
+                    completedOn = rs.getTimestamp("completed_on");
+                }
+                int questionId = rs.getInt("question_id");
+                if (!rs.wasNull()) {
+                    rows.add(new AttemptRow(
+                            questionId,
+                            rs.getString("chosen_option"),
+                            rs.getInt("correct_option"),
+                            rs.getBoolean("is_correct")));
+                }
+            }
+            rs.close();
+            ps.close();
+            return summary == null ? null : new ResultDetail(resultId, summary, completedOn, rows);
+        }
+    }
+
+    /**
+     * Reads a user's row of the user_stats rollup (one primary key lookup)
+     * @return The statistics, or null if the user has not completed a test
+     */
+    public static UserStats loadUserStats(int userId) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "SELECT tests_taken, score_sum, question_sum, best_percentage, recent_percentage, last_completed " +
+                            "FROM user_stats WHERE user_id = ?");
+            ps.setInt(1, userId);
+            ResultSet rs = ps.executeQuery();
+            UserStats stats = null;
+            if (rs.next()) {
+                stats = new UserStats(rs.getInt("tests_taken"), rs.getLong("score_sum"), rs.getLong("question_sum"),
+                        rs.getDouble("best_percentage"), rs.getDouble("recent_percentage"), rs.getTimestamp("last_completed"));
+            }
+            rs.close();
+            ps.close();
+            return stats;
+        }
+    }
+
+    /**
+     * @return All results of one user, newest first
+     */
+    public static List<HistoryEntry> loadHistory(int userId) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "SELECT result_id, score, total_questions, date_taken FROM results WHERE user_id = ? ORDER BY date_taken DESC"
+            );
+            ps.setInt(1, userId);
+            ResultSet rs = ps.executeQuery();
+
+            List<HistoryEntry> entries = new ArrayList<>();
+            while (rs.next()) {
+                entries.add(new HistoryEntry(
+                        rs.getInt("result_id"),
+                        rs.getInt("score"),
+                        rs.getInt("total_questions"),
+                        rs.getTimestamp("date_taken")));
+            }
+            rs.close();
+            ps.close();
+            return entries;
+        }
+    }
+
+    /**
+     * @return Number of results of one user
+     */
+    public static int countHistory(int userId) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM results WHERE user_id = ?");
+            ps.setInt(1, userId);
+            ResultSet rs = ps.executeQuery();
+            int count = rs.next() ? rs.getInt(1) : 0;
+            rs.close();
+            ps.close();
+            return count;
+        }
+    }
+
+    /**
+     * One page of a user's results, newest first, using keyset pagination on (date_taken, result_id)
+     * so the database seeks in idx_results_user_date instead of counting past skipped rows
+     * @param after Last entry of the previous page, or null for the first page
+     * @param skip Rows to skip after that entry (0 when reading page by page)
+     * @param limit Page size
+     */
+    public static List<HistoryEntry> loadHistoryPage(int userId, HistoryEntry after, int skip, int limit) throws SQLException {
+        try (Connection conn = connect()) {
+            PreparedStatement ps;
+            if (after == null) {
+                ps = conn.prepareStatement(
+                        "SELECT result_id, score, total_questions, date_taken FROM results WHERE user_id = ? " +
+                                "ORDER BY date_taken DESC, result_id DESC LIMIT ? OFFSET ?"
+                );
+                ps.setInt(1, userId);
+                ps.setInt(2, limit);
+                ps.setInt(3, skip);
+            } else {
+                ps = conn.prepareStatement(
+                        "SELECT result_id, score, total_questions, date_taken FROM results WHERE user_id = ? " +
+                                "AND (date_taken < ? OR (date_taken = ? AND result_id < ?)) " +
+                                "ORDER BY date_taken DESC, result_id DESC LIMIT ? OFFSET ?"
+                );
+                ps.setInt(1, userId);
+                ps.setTimestamp(2, after.dateTaken);
+                ps.setTimestamp(3, after.dateTaken);
+                ps.setInt(4, after.resultId);
+                ps.setInt(5, limit);
+                ps.setInt(6, skip);
+            }
+            ResultSet rs = ps.executeQuery();
+
+            List<HistoryEntry> entries = new ArrayList<>(limit);
+            while (rs.next()) {
+                entries.add(new HistoryEntry(
+                        rs.getInt("result_id"),
+                        rs.getInt("score"),
+                        rs.getInt("total_questions"),
+                        rs.getTimestamp("date_taken")));
+            }
+            rs.close();
+            ps.close();
+            return entries;
+        }
+    }
+
+    static Connection connect() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null) {
+            throw new SQLException("No database connection available");
+        }
+        return conn;
+    }
+
+    /**
+     * Score of one completed (or in-progress) test
+     */
+    public static final class ResultSummary {
+        public final int userId;
+        public final int score;
+        public final int totalQuestions;
+        public final Timestamp dateTaken;
+
+        // Ability estimate and its standard error of an adaptive test, null for a fixed-length one
+        public final Double ability;
+        public final Double abilityError;
+
+        ResultSummary(int userId, int score, int totalQuestions, Timestamp dateTaken, Double ability, Double abilityError) {
+            this.userId = userId;
+            this.score = score;
+            this.totalQuestions = totalQuestions;
+            this.dateTaken = dateTaken;
+            this.ability = ability;
+            this.abilityError = abilityError;
+        }
+
+        public boolean isAdaptive() {
+            return ability != null;
+        }
+
+        /**
+         * @return Estimated IQ: from the ability estimate of an adaptive test, otherwise from the score norms
+         */
+        public int getIq() {
+            return isAdaptive() ? NormingEngine.abilityIq(ability)
+                    : NormingEngine.getInstance().iq(score, totalQuestions);
+        }
+
+        public double getPercentage() {
+            return (score * 100.0) / totalQuestions;
+        }
+    }
+
+    private static ResultSummary readSummary(ResultSet rs) throws SQLException {
+        double ability = rs.getDouble("ability");
+        boolean adaptive = !rs.wasNull();
+        return new ResultSummary(rs.getInt("user_id"), rs.getInt("score"), rs.getInt("total_questions"),
+                rs.getTimestamp("date_taken"), adaptive ? ability : null, adaptive ? rs.getDouble("ability_se") : null);
+    }
+
+    /**
+     * One answered question of a result
+     */
+    public static final class AttemptRow {
+        public final int questionId;
+        public final String chosenOption;
+        public final int correctOption;
+        public final boolean correct;
+
+        AttemptRow(int questionId, String chosenOption, int correctOption, boolean correct) {
+            this.questionId = questionId;
+            this.chosenOption = chosenOption;
+            this.correctOption = correctOption;
+            this.correct = correct;
+        }
+    }
+
+    /**
+     * Score and answers of one result; immutable
+     */
+    public static final class ResultDetail {
+        public final int resultId;
+        public final ResultSummary summary;
+        // Null until AttemptJournal commits the final score
+        public final Timestamp completedOn;
+        public final List<AttemptRow> attempts;
+
+        ResultDetail(int resultId, ResultSummary summary, Timestamp completedOn, List<AttemptRow> attempts) {
+            this.resultId = resultId;
+            this.summary = summary;
+            this.completedOn = completedOn;
+            this.attempts = List.copyOf(attempts);
+        }
+
+        /**
+         * @return true once the final score is stored, in the same transaction as the last
+         *         attempts; a complete result never changes again
+         */
+        public boolean isComplete() {
+            return completedOn != null;
+        }
+    }
+
+    /**
+     * Aggregates over the completed tests of one user
+     */
+    public static final class UserStats {
+        // Difference between recent and overall average that counts as a trend
+        private static final double TREND_THRESHOLD = 2.0;
+
+        public final int testsTaken;
+        public final long scoreSum;
+        public final long questionSum;
+        public final double bestPercentage;
+        // Exponential moving average, weighted towards the latest tests
+        public final double recentPercentage;
+        public final Timestamp lastCompleted;
+
+        UserStats(int testsTaken, long scoreSum, long questionSum, double bestPercentage, double recentPercentage, Timestamp lastCompleted) {
+            this.testsTaken = testsTaken;
+            this.scoreSum = scoreSum;
+            this.questionSum = questionSum;
+            this.bestPercentage = bestPercentage;
+            this.recentPercentage = recentPercentage;
+            this.lastCompleted = lastCompleted;
+        }
+
+        public double getAveragePercentage() {
+            return questionSum == 0 ? 0 : (scoreSum * 100.0) / questionSum;
+        }
+
+        /**
+         * @return "improving", "declining" or "steady", comparing recent tests with the overall average
+         */
+        public String getTrend() {
+            double difference = recentPercentage - getAveragePercentage();
+            if (testsTaken < 2 || Math.abs(difference) < TREND_THRESHOLD) {
+                return "steady";
+            }
+            return difference > 0 ? "improving" : "declining";
+        }
+
+        /**
+         * @return One-line summary for the menu and history screens
+         */
+        public String describe() {
+            return String.format("%d %s  ·  average %.1f%%  ·  best %.1f%%  ·  %s",
+                    testsTaken, testsTaken == 1 ? "test" : "tests", getAveragePercentage(), bestPercentage, getTrend());
+        }
+    }
+
+    /**
+     * One row of a user's test history
+     */
+    public static final class HistoryEntry {
+        public final int resultId;
+        public final int score;
+        public final int totalQuestions;
+        public final Timestamp dateTaken;
+
+        HistoryEntry(int resultId, int score, int totalQuestions, Timestamp dateTaken) {
+            this.resultId = resultId;
+            this.score = score;
+            this.totalQuestions = totalQuestions;
+            this.dateTaken = dateTaken;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.example;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.Frame;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.swing.AbstractButton;
+
+/**
+ * EdtWatchdog class - Measures how long every Swing event takes to dispatch
+ * Replaces the system event queue with one that times each dispatch into a histogram
+ * per event and source type. A monitor thread notices when the event dispatch thread
+ * has been busy with one event for longer than iq.edt.stallMillis (default 200) and
+ * logs its stack trace while it is still stuck; the stall's full duration is then
+ * recorded per source. The per-event cost is two nanoTime calls and a map lookup.
+ */
+public final class EdtWatchdog extends EventQueue {
+    private static final long STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("iq.edt.stallMillis", 200));
+    private static final int STACK_DEPTH = 25;
+
+    private static EdtWatchdog installed;
+
+    // Dispatch time of every event, by event class then source class
+    private final Map<Class<?>, Map<Class<?>, LatencyHistogram>> dispatchTimes = new ConcurrentHashMap<>();
+    // Duration of stalls only, by a readable description of the source
+    private final Map<String, LatencyHistogram> stallTimes = new ConcurrentHashMap<>();
+
+    // Written by the event dispatch thread, read by the monitor thread
+    private volatile long currentStart;
+    private volatile AWTEvent currentEvent;
+    private volatile long currentId;
+    private volatile Thread dispatchThread;
+    private long dispatched;
+    private int depth;
+    private long reportedId;
+
+    private EdtWatchdog() {
+    }
+
+    /**
+     * Installs the watchdog once; does nothing with -Diq.edt.watchdog=false
+     */
+    public static synchronized void install() {
+        if (installed != null || !Boolean.parseBoolean(System.getProperty("iq.edt.watchdog", "true"))) {
+            return;
+        }
+        installed = new EdtWatchdog();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(installed);
+
+        Thread monitor = new Thread(installed::monitor, "edt-watchdog");
+        monitor.setDaemon(true);
+        monitor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (!installed.stallTimes.isEmpty()) {
+                Log.warn("Event dispatch thread stalled:{}", System.lineSeparator() + installed.report());
+                Log.flush();
+            }
+        }, "edt-watchdog-report"));
+    }
+
+    /**
+     * @return Dispatch and stall statistics, or an empty string when not installed
+     */
+    public static synchronized String currentReport() {
+        return installed == null ? "" : installed.report();
+    }
+
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException {
+        // Waiting for the next event (also inside modal dialogs) is idle time, not a stall
+        currentStart = 0;
+        return super.getNextEvent();
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long id = ++dispatched;
+        long start = System.nanoTime();
+        AWTEvent outerEvent = currentEvent;
+        long outerId = currentId;
+        depth++;
+        dispatchThread = Thread.currentThread();
+        currentEvent = event;
+        currentId = id;
+        currentStart = start;
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long end = System.nanoTime();
+            // An event that ran a modal dialog pumped other events; its time is mostly waiting
+            if (dispatched == id) {
+                record(event, end - start);
+            }
+            if (--depth > 0) {
+                // Back in the event that opened a modal dialog; it is running again
+                currentEvent = outerEvent;
+                currentId = outerId;
+                currentStart = end;
+            } else {
+                currentStart = 0;
+            }
+        }
+    }
+
+    private void record(AWTEvent event, long nanos) {
+        Class<?> sourceClass = event.getSource() == null ? Void.class : event.getSource().getClass();
+        dispatchTimes.computeIfAbsent(event.getClass(), c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(sourceClass, c -> new LatencyHistogram())
+                .record(nanos);
+        if (nanos >= STALL_NANOS) {
+            stallTimes.computeIfAbsent(describe(event), d -> new LatencyHistogram()).record(nanos);
+        }
+    }
+
+    private void monitor() {
+        long pollMillis = Math.max(10, TimeUnit.NANOSECONDS.toMillis(STALL_NANOS) / 2);
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = currentStart;
+            long id = currentId;
+            Thread edt = dispatchThread;
+            if (start == 0 || edt == null || id == reportedId) {
+                continue;
+            }
+            long blockedNanos = System.nanoTime() - start;
+            if (blockedNanos >= STALL_NANOS && start == currentStart) {
+                reportedId = id;
+                reportStall(edt, currentEvent, blockedNanos);
+            }
+        }
+    }
+
+    private static void reportStall(Thread edt, AWTEvent event, long blockedNanos) {
+        StackTraceElement[] stack = edt.getStackTrace();
+        Throwable trace = new Throwable("Stack of the blocked event dispatch thread");
+        trace.setStackTrace(Arrays.copyOf(stack, Math.min(STACK_DEPTH, stack.length)));
+        Log.warn("Event dispatch thread blocked for {} ms by {}", TimeUnit.NANOSECONDS.toMillis(blockedNanos),
+                event == null ? "unknown event" : describe(event), trace);
+    }
+
+    /**
+     * Readable event source, e.g. "ActionEvent on JButton 'Submit Answer'"
+     */
+    private static String describe(AWTEvent event) {
+        Object source = event.getSource();
+        StringBuilder sb = new StringBuilder(typeName(event.getClass()));
+        if (source != null) {
+            sb.append(" on ").append(typeName(source.getClass()));
+            if (source instanceof AbstractButton && ((AbstractButton) source).getText() != null) {
+                sb.append(" '").append(((AbstractButton) source).getText()).append('\'');
+            } else if (source instanceof Frame) {
+                sb.append(" '").append(((Frame) source).getTitle()).append('\'');
+            } else if (source instanceof Component && ((Component) source).getName() != null) {
+                sb.append(" '").append(((Component) source).getName()).append('\'');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String typeName(Class<?> type) {
+        // Anonymous classes have no simple name
+        return type.getSimpleName().isEmpty() ? type.getName() : type.getSimpleName();
+    }
+
+    private String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("EDT dispatch times (ms):%n%-50s %9s %8s %8s %8s%n", "event / source", "count", "p50", "p99", "max"));
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<Class<?>, Map<Class<?>, LatencyHistogram>> byEvent : dispatchTimes.entrySet()) {
+            for (Map.Entry<Class<?>, LatencyHistogram> bySource : byEvent.getValue().entrySet()) {
+                lines.add(formatLine(typeName(byEvent.getKey()) + " / " + typeName(bySource.getKey()),
+                        bySource.getValue()));
+            }
+        }
+        lines.sort(null);
+        lines.forEach(sb::append);
+
+        sb.append(String.format("EDT stalls over %d ms:%n", TimeUnit.NANOSECONDS.toMillis(STALL_NANOS)));
+        List<String> stalls = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : stallTimes.entrySet()) {
+            stalls.add(formatLine(entry.getKey(), entry.getValue()));
+        }
+        stalls.sort(null);
+        stalls.forEach(sb::append);
+        return sb.toString();
+    }
+
+    private static String formatLine(String name, LatencyHistogram histogram) {
+        return String.format("%-50s %9d %8.1f %8.1f %8.1f%n", name, histogram.getCount(),
+                histogram.valueAtPercentile(50) / 1e6, histogram.valueAtPercentile(99) / 1e6, histogram.getMax() / 1e6);
+    }
+}
@@ -3,14 +3,22 @@ package org.example;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
-import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
 public class HistoryFrame extends JFrame {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+
     private int userId;
     private String username;
+    private JLabel statusLabel;
+    private final UiTasks tasks = new UiTasks();
 
     public HistoryFrame(int userId, String username) {
+        TestEvents.FrameConstruction construction = new TestEvents.FrameConstruction();
+        construction.begin();
         this.userId = userId;
         this.username = username;
 
@@ -45,28 +53,43 @@ public class HistoryFrame extends JFrame {
         titleLabel.setFont(new Font("Inter", Font.BOLD, 32));
         titleLabel.setForeground(new Color(248, 250, 252));
 
+        // Shown while the history is loading
+        statusLabel = new JLabel("Loading history...", SwingConstants.CENTER);
+        statusLabel.setFont(new Font("Inter", Font.PLAIN, 14));
+        statusLabel.setForeground(new Color(148, 163, 184));
+
         headerPanel.add(titleLabel, BorderLayout.CENTER);
+        headerPanel.add(statusLabel, BorderLayout.SOUTH);
 
         // Table Panel
         JPanel tablePanel = new JPanel(new BorderLayout());
         tablePanel.setOpaque(false);
 
-        String[] columns = {"Date", "Score", "Total", "Percentage", "Actions"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 4; // Only Actions column
-            }
-        };
+        HistoryTableModel model = new HistoryTableModel(userId, tasks, error -> {
+            Log.error("Could not load history of user {}", userId, error);
+            statusLabel.setText("Could not load history: " + error.getMessage());
+        });
 
         JTable table = new JTable(model);
         styleTable(table);
 
         // Add button renderer and editor for Actions column
-        table.getColumnModel().getColumn(4).setCellRenderer(new ButtonRenderer());
-        table.getColumnModel().getColumn(4).setCellEditor(new ButtonEditor(new JCheckBox(), this));
+        table.getColumnModel().getColumn(HistoryTableModel.ACTIONS_COLUMN).setCellRenderer(new ButtonRenderer());
+        table.getColumnModel().getColumn(HistoryTableModel.ACTIONS_COLUMN).setCellEditor(new ButtonEditor(new JCheckBox(), this));
 
-        loadHistory(model);
+        model.load(count -> {
+            if (count == 0) {
+                statusLabel.setText("No tests taken yet");
+                return;
+            }
+            statusLabel.setText(count + " tests taken");
+            // Aggregates come from the user_stats rollup, not from the history rows
+            tasks.run(AsyncDataAccess.loadUserStats(userId), stats -> {
+                if (stats != null) {
+                    statusLabel.setText(stats.describe());
+                }
+            }, error -> Log.warn("Could not load statistics of user {}", userId, error));
+        });
 
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setOpaque(false);
@@ -95,6 +118,7 @@ public class HistoryFrame extends JFrame {
 
         add(mainPanel);
         setVisible(true);
+        construction.finish("HistoryFrame", userId);
     }
 
     public static void main(String[] args) {
@@ -118,7 +142,22 @@ public class HistoryFrame extends JFrame {
         header.setPreferredSize(new Dimension(header.getWidth(), 45));
         header.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(51, 65, 85)));
 
-        DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
+        // The model holds raw values; they are only turned into text for visible cells
+        DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                if (value == null) {
+                    setText("..."); // Page still loading
+                } else if (value instanceof Long) {
+                    LocalDateTime taken = LocalDateTime.ofInstant(Instant.ofEpochMilli((Long) value), ZoneId.systemDefault());
+                    setText(taken.format(DATE_FORMAT));
+                } else if (value instanceof Double) {
+                    setText(String.format("%.1f%%", (Double) value));
+                } else {
+                    super.setValue(value);
+                }
+            }
+        };
         centerRenderer.setHorizontalAlignment(JLabel.CENTER);
         centerRenderer.setBackground(new Color(30, 41, 59));
         centerRenderer.setForeground(new Color(203, 213, 225));
@@ -128,39 +167,10 @@ public class HistoryFrame extends JFrame {
         }
     }
 
-    private void loadHistory(DefaultTableModel model) {
-        try {
-            Connection conn = DBConnection.getConnection();
-            PreparedStatement ps = conn.prepareStatement(
-                    "SELECT result_id, score, total_questions, date_taken FROM results WHERE user_id = ? ORDER BY date_taken DESC"
-            );
-            ps.setInt(1, userId);
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                int resultId = rs.getInt("result_id");
-                int score = rs.getInt("score");
-                int total = rs.getInt("total_questions");
-                Timestamp dateTaken = rs.getTimestamp("date_taken");
-                double percentage = (score * 100.0) / total;
-
-                String dateStr = dateTaken.toLocalDateTime().format(DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm"));
-
-                model.addRow(new Object[]{
-                        dateStr,
-                        score,
-                        total,
-                        String.format("%.1f%%", percentage),
-                        resultId // Store resultId for the button action
-                });
-            }
-
-            rs.close();
-            ps.close();
-            conn.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    @Override
+    public void dispose() {
+        tasks.cancelAll();
+        super.dispose();
     }
 
     private void styleButton(JButton button, Color normalColor, Color hoverColor) {
@@ -0,0 +1,185 @@
+package org.example;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * HistoryTableModel class - Lazily paged table model for a user's test history
+ * Only the row count is loaded up front. Pages are fetched with keyset pagination when
+ * the table first paints one of their rows, and only the most recently used pages are
+ * kept. The last entry of every loaded page is remembered, so scrolling back or jumping
+ * near a known page seeks in the index instead of skipping rows from the top.
+ * Pages store their columns in primitive arrays; cells hold raw values (epoch millis,
+ * percentage as a double) and HistoryFrame's renderers format the visible ones.
+ * All methods run on the event dispatch thread.
+ */
+class HistoryTableModel extends AbstractTableModel {
+    static final int DATE_COLUMN = 0;
+    static final int SCORE_COLUMN = 1;
+    static final int TOTAL_COLUMN = 2;
+    static final int PERCENTAGE_COLUMN = 3;
+    static final int ACTIONS_COLUMN = 4;
+
+    private static final String[] COLUMNS = {"Date", "Score", "Total", "Percentage", "Actions"};
+    private static final Class<?>[] COLUMN_CLASSES = {Long.class, Integer.class, Integer.class, Double.class, Integer.class};
+    private static final int PAGE_SIZE = Integer.getInteger("iq.history.pageSize", 50);
+    private static final int CACHED_PAGES = Integer.getInteger("iq.history.cachedPages", 8);
+
+    private final int userId;
+    private final UiTasks tasks;
+    private final Consumer<Throwable> onError;
+    private int rowCount;
+
+    // Loaded pages by page number, least recently used first
+    private final Map<Integer, Page> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    // Last entry of each page seen so far, the keyset cursor for the page after it
+    private final TreeMap<Integer, DataAccess.HistoryEntry> pageEnds = new TreeMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private final Set<Integer> failed = new HashSet<>();
+
+    /**
+     * @param tasks Background calls of the owning frame
+     * @param onError Receives load failures on the EDT
+     */
+    HistoryTableModel(int userId, UiTasks tasks, Consumer<Throwable> onError) {
+        this.userId = userId;
+        this.tasks = tasks;
+        this.onError = onError;
+    }
+
+    /**
+     * Loads the number of results; pages follow as rows become visible
+     * @param onLoaded Receives the row count on the EDT
+     */
+    void load(Consumer<Integer> onLoaded) {
+        tasks.run(AsyncDataAccess.countHistory(userId), count -> {
+            rowCount = count;
+            fireTableDataChanged();
+            onLoaded.accept(count);
+        }, onError);
+    }
+
+    /**
+     * @return Result ID of a row, or null while its page is not loaded
+     */
+    Integer resultIdAt(int row) {
+        Object value = getValueAt(row, ACTIONS_COLUMN);
+        return value instanceof Integer ? (Integer) value : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == ACTIONS_COLUMN && resultIdAt(row) != null;
+    }
+
+    /**
+     * @return Raw cell value, or null while the row's page is loading
+     */
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageNumber = row / PAGE_SIZE;
+        Page page = pages.get(pageNumber);
+        if (page == null) {
+            requestPage(pageNumber);
+            return null;
+        }
+        int index = row % PAGE_SIZE;
+        // The last page can come back short if results were deleted after counting
+        if (index >= page.size) {
+            return null;
+        }
+        switch (column) {
+            case DATE_COLUMN: return page.takenMillis[index];
+            case SCORE_COLUMN: return page.scores[index];
+            case TOTAL_COLUMN: return page.totals[index];
+            case PERCENTAGE_COLUMN: return (page.scores[index] * 100.0) / page.totals[index];
+            case ACTIONS_COLUMN: return page.resultIds[index];
+            default: throw new IndexOutOfBoundsException("No column " + column);
+        }
+    }
+
+    private void requestPage(int page) {
+        if (failed.contains(page) || !loading.add(page)) {
+            return;
+        }
+        // Seek from the closest known page end before this page and skip the rest
+        Map.Entry<Integer, DataAccess.HistoryEntry> known = pageEnds.floorEntry(page - 1);
+        DataAccess.HistoryEntry after = known == null ? null : known.getValue();
+        int skip = (page - (known == null ? 0 : known.getKey() + 1)) * PAGE_SIZE;
+
+        tasks.run(AsyncDataAccess.loadHistoryPage(userId, after, skip, PAGE_SIZE), entries -> {
+            loading.remove(page);
+            pages.put(page, new Page(entries));
+            if (!entries.isEmpty()) {
+                pageEnds.put(page, entries.get(entries.size() - 1));
+            }
+            int first = page * PAGE_SIZE;
+            int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+            if (first <= last) {
+                fireTableRowsUpdated(first, last);
+            }
+        }, error -> {
+            loading.remove(page);
+            // Not retried on the next repaint, which would hammer a failing database
+            failed.add(page);
+            onError.accept(error);
+        });
+    }
+
+    /**
+     * One page of results, column by column
+     */
+    private static final class Page {
+        final int size;
+        final int[] resultIds;
+        final int[] scores;
+        final int[] totals;
+        final long[] takenMillis;
+
+        Page(List<DataAccess.HistoryEntry> entries) {
+            size = entries.size();
+            resultIds = new int[size];
+            scores = new int[size];
+            totals = new int[size];
+            takenMillis = new long[size];
+            for (int i = 0; i < size; i++) {
+                DataAccess.HistoryEntry entry = entries.get(i);
+                resultIds[i] = entry.resultId;
+                scores[i] = entry.score;
+                totals[i] = entry.totalQuestions;
+                takenMillis[i] = entry.dateTaken.getTime();
+            }
+        }
+    }
+}
@@ -7,25 +7,35 @@ import java.sql.*;
 import javax.swing.Timer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
 
 import static java.lang.Thread.sleep;
 
 public class IQTestFrame extends JFrame {
     private JLabel questionLabel;
     private JButton[] optionButtons;
-    private int currentQuestion = 1;
-    private int score = 0;
+    private JLabel[] optionTextLabels;
     private JLabel scoreLabel;
     private JLabel questionNumberLabel;
     private JProgressBar progressBar;
-    private int totalQuestions = 20;
+    private int totalQuestions = TestSession.DEFAULT_TOTAL_QUESTIONS;  // Maximum for an adaptive test
     private int userId;
-    private int resultId;
+
+    // Test logic and state; this frame only displays it
+    private final TestSession session;
+
+    // Background database work, dropped when the frame is disposed
+    private final UiTasks tasks = new UiTasks();
+    private CompletableFuture<Void> completion;
+
+    // Question N+1, fetched and rendered while question N is on screen
+    private CompletableFuture<PreparedQuestion> prefetched;
+    private int prefetchedPosition;
 
     // Timer components
     private Timer questionTimer;
     private int timeRemaining;
-    private static final int TIME_PER_QUESTION = 30; // 30 seconds per question
+    private static final int TIME_PER_QUESTION = TestSession.DEFAULT_SECONDS_PER_QUESTION; // 30 seconds per question
     private JLabel timerLabel;
     private JProgressBar timerProgressBar;
 
@@ -34,7 +44,11 @@ public class IQTestFrame extends JFrame {
     }
 
     public IQTestFrame(int userId) {
+        TestEvents.FrameConstruction construction = new TestEvents.FrameConstruction();
+        construction.begin();
         this.userId = userId;
+        this.session = new TestSession(userId, JdbcTestStorage.getInstance());
+        this.totalQuestions = session.getTotalQuestions();
         setTitle("IQ Test App");
         setSize(1100, 750);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -82,7 +96,7 @@ public class IQTestFrame extends JFrame {
         JPanel infoPanel = new JPanel(new GridLayout(1, 3, 20, 0));
         infoPanel.setOpaque(false);
 
-        questionNumberLabel = new JLabel("Question 1/" + totalQuestions, SwingConstants.LEFT);
+        questionNumberLabel = new JLabel(questionNumberText(1), SwingConstants.LEFT);
         questionNumberLabel.setFont(new Font("Inter", Font.PLAIN, 16));
         questionNumberLabel.setForeground(new Color(148, 163, 184));
 
@@ -172,6 +186,7 @@ public class IQTestFrame extends JFrame {
             });
             optionsPanel.add(optionButtons[i]);
         }
+        optionTextLabels = findOptionTextLabels();
 
         // Add all panels to main panel
         mainPanel.add(headerPanel, BorderLayout.NORTH);
@@ -180,22 +195,31 @@ public class IQTestFrame extends JFrame {
 
         add(mainPanel);
 
-        initializeTest();
-        loadQuestion(currentQuestion);
         setVisible(true);
+        initializeTest();
+        construction.finish("IQTestFrame", userId);
     }
 
     private void startTimer() {
-        timeRemaining = TIME_PER_QUESTION;
+        timeRemaining = session.remainingSeconds();
         updateTimerDisplay();
 
         if (questionTimer != null) {
             questionTimer.stop();
         }
 
+        // The deadline lives in the session, so a late tick cannot stretch the time limit
         questionTimer = new Timer(1000, e -> {
-            timeRemaining--;
+            TestEvents.TimerTick tick = new TestEvents.TimerTick();
+            tick.begin();
+            timeRemaining = session.remainingSeconds();
             updateTimerDisplay();
+            if (tick.shouldCommit()) {
+                tick.resultId = session.getResultId();
+                tick.position = session.getPosition();
+                tick.remainingSeconds = timeRemaining;
+                tick.commit();
+            }
 
             if (timeRemaining <= 0) {
                 stopTimer();
@@ -229,40 +253,30 @@ public class IQTestFrame extends JFrame {
     }
 
     private void handleTimeout() {
+        if (session.getState() != TestSession.State.PRESENTING) {
+            return;
+        }
+
         // Disable all buttons
         for (JButton button : optionButtons) {
             button.setEnabled(false);
         }
 
         // Record the timeout as an incorrect answer
-        try {
-            PreparedStatement psAttempt = DBConnection.getConnection().prepareStatement(
-                    "INSERT INTO attempts(result_id, question_id, chosen_option, is_correct) VALUES (?, ?, ?, ?)"
-            );
-            psAttempt.setInt(1, resultId);
-            psAttempt.setInt(2, currentQuestion);
-            psAttempt.setString(3, "TIMEOUT");
-            psAttempt.setBoolean(4, false);
-            psAttempt.executeUpdate();
-            psAttempt.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        TestSession.Outcome outcome = session.timeout();
 
         // Show timeout message briefly
         Timer delayTimer = new Timer(500, e -> {
-            currentQuestion++;
-
             // Re-enable buttons
             for (JButton button : optionButtons) {
                 button.setEnabled(true);
             }
 
-            if (currentQuestion > totalQuestions) {
+            if (outcome.finished) {
                 updateFinalScore();
                 showCompletionDialog();
             } else {
-                loadQuestion(currentQuestion);
+                loadQuestion(session.getPosition());
             }
         });
         delayTimer.setRepeats(false);
@@ -346,141 +360,136 @@ public class IQTestFrame extends JFrame {
     }
 
     private void updateUI() {
-        scoreLabel.setText("Score: " + score);
-        questionNumberLabel.setText("Question " + currentQuestion + "/" + totalQuestions);
-        progressBar.setValue(currentQuestion);
+        int questionNumber = session.getPosition() + 1;
+        scoreLabel.setText("Score: " + session.getScore());
+        questionNumberLabel.setText(questionNumberText(questionNumber));
+        progressBar.setValue(questionNumber);
     }
 
-    private void initializeTest() {
-        try {
-            Connection conn = DBConnection.getConnection();
-            PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO results(user_id, score, total_questions, date_taken) VALUES (?, 0, ?, ?)",
-                    Statement.RETURN_GENERATED_KEYS
-            );
-            ps.setInt(1, userId);
-            ps.setInt(2, totalQuestions);
-            ps.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
-            ps.executeUpdate();
-
-            ResultSet rs = ps.getGeneratedKeys();
-            if (rs.next()) {
-                resultId = rs.getInt(1);
-            }
-            rs.close();
-            ps.close();
-            conn.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    /**
+     * An adaptive test has no fixed length to show, only its maximum
+     */
+    private String questionNumberText(int questionNumber) {
+        return session.isAdaptive() ? "Question " + questionNumber + " (up to " + totalQuestions + ")"
+                : "Question " + questionNumber + "/" + totalQuestions;
     }
 
-    private void loadQuestion(int qId) {
-        try {
-            Connection conn = DBConnection.getConnection();
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM questions WHERE question_id = ?");
-            ps.setInt(1, qId);
-
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                questionLabel.setText("<html><center>" + rs.getString("question_text") + "</center></html>");
-
-                // Update button text labels
-                String[] options = {
-                        rs.getString("option_a"),
-                        rs.getString("option_b"),
-                        rs.getString("option_c"),
-                        rs.getString("option_d")
-                };
-
-                for (int i = 0; i < 4; i++) {
-                    Component[] components = optionButtons[i].getComponents();
-                    for (Component comp : components) {
-                        if (comp instanceof JLabel && comp.getParent() == optionButtons[i]) {
-                            JLabel textLabel = (JLabel) comp;
-                            if (textLabel.getHorizontalAlignment() != SwingConstants.CENTER) {
-                                textLabel.setText("<html>" + options[i] + "</html>");
-                            }
-                        }
-                    }
-                }
+    private void initializeTest() {
+        // Placeholder while the results row is created and the questions are loaded
+        questionLabel.setText("<html><center>Loading test...</center></html>");
+        for (JButton button : optionButtons) {
+            button.setEnabled(false);
+        }
 
-                updateUI();
-                startTimer(); // Start timer when question is loaded
+        tasks.run(AsyncDataAccess.submit(session::start), resultId -> {
+            for (JButton button : optionButtons) {
+                button.setEnabled(true);
             }
-            rs.close();
-            ps.close();
-            conn.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            loadQuestion(session.getPosition());
+        }, error -> {
+            Log.error("Could not start a test for user {}", userId, error);
+            questionLabel.setText("<html><center>Could not start the test</center></html>");
             JOptionPane.showMessageDialog(this,
-                    "Error loading question: " + e.getMessage(),
+                    "Error starting test: " + error.getMessage(),
                     "Database Error",
                     JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void loadQuestion(int position) {
+        CompletableFuture<PreparedQuestion> pending =
+                prefetched != null && prefetchedPosition == position ? prefetched : fetchQuestion(position);
+        prefetched = null;
+
+        // Normally the prefetch has finished and the switch happens without waiting
+        if (pending.isDone() && !pending.isCompletedExceptionally()) {
+            showQuestion(position, pending.join());
+            return;
         }
+        questionLabel.setText("<html><center>Loading question...</center></html>");
+        for (JButton button : optionButtons) {
+            button.setEnabled(false);
+        }
+        tasks.run(pending, question -> showQuestion(position, question), error -> {
+            Log.error("Could not load question {}", position + 1, error);
+            JOptionPane.showMessageDialog(this,
+                    "Error loading question: " + error.getMessage(),
+                    "Database Error",
+                    JOptionPane.ERROR_MESSAGE);
+        });
     }
 
-    private void checkAnswer(String selectedOption) {
+    private void showQuestion(int position, PreparedQuestion question) {
         try {
-            Connection conn = DBConnection.getConnection();
-            PreparedStatement ps = conn.prepareStatement("SELECT correct_option FROM questions WHERE question_id = ?");
-            ps.setInt(1, currentQuestion);
-            ResultSet rs = ps.executeQuery();
-
-            boolean isCorrect = false;
-            if (rs.next()) {
-                int correctOption = rs.getInt("correct_option");
-                // Convert letter to number: A=1, B=2, C=3, D=4
-                int selectedNumber = convertLetterToNumber(selectedOption);
-
-                System.out.println("Question " + currentQuestion + ": Selected=" + selectedOption + "(" + selectedNumber + "), Correct=" + correctOption);
-                isCorrect = (selectedNumber == correctOption);
-                if (isCorrect) {
-                    score++;
-                    System.out.println("Correct! Score is now: " + score);
-                } else {
-                    System.out.println("Incorrect!");
+            // Already fetched by the prefetch, so this does not block
+            session.present();
+        } catch (SQLException e) {
+            Log.error("Could not present question {}", position + 1, e);
+            return;
+        }
+        questionLabel.setText(question.questionHtml);
+
+        // Update button text labels
+        for (int i = 0; i < 4; i++) {
+            optionTextLabels[i].setText(question.optionHtml[i]);
+            optionButtons[i].setEnabled(true);
+        }
+
+        updateUI();
+        startTimer(); // Start timer when question is loaded
+
+        // Start on the next question while the user reads this one; an adaptive test
+        // only knows its next question once this one is answered
+        if (!session.isAdaptive() && position + 1 < totalQuestions) {
+            prefetchedPosition = position + 1;
+            prefetched = fetchQuestion(prefetchedPosition);
+        }
+    }
+
+    /**
+     * Looks up a question and builds its label HTML off the EDT
+     */
+    private CompletableFuture<PreparedQuestion> fetchQuestion(int position) {
+        return AsyncDataAccess.submit(() -> new PreparedQuestion(session.questionAt(position)));
+    }
+
+    /**
+     * The text labels inside the option buttons (the A-D tags are centered, the texts are not)
+     */
+    private JLabel[] findOptionTextLabels() {
+        JLabel[] labels = new JLabel[4];
+        for (int i = 0; i < 4; i++) {
+            for (Component comp : optionButtons[i].getComponents()) {
+                if (comp instanceof JLabel && ((JLabel) comp).getHorizontalAlignment() != SwingConstants.CENTER) {
+                    labels[i] = (JLabel) comp;
                 }
             }
+        }
+        return labels;
+    }
 
-            // Record attempt
-            PreparedStatement psAttempt = conn.prepareStatement(
-                    "INSERT INTO attempts(result_id, question_id, chosen_option, is_correct) VALUES (?, ?, ?, ?)"
-            );
-            psAttempt.setInt(1, resultId);
-            psAttempt.setInt(2, currentQuestion);
-            psAttempt.setString(3, selectedOption);
-            psAttempt.setBoolean(4, isCorrect);
-            psAttempt.executeUpdate();
-            psAttempt.close();
-
-            rs.close();
-            ps.close();
-            conn.close();
-
-            currentQuestion++;
-
-            // Check if test is complete BEFORE loading next question
-            if (currentQuestion > totalQuestions) {
-                System.out.println("Test complete! Final score: " + score);
-                updateFinalScore();  // Update score in database
-                showCompletionDialog();
-            } else {
-                loadQuestion(currentQuestion);
-            }
+    private void checkAnswer(String selectedOption) {
+        // Ignore clicks while no question is on screen
+        if (session.getState() != TestSession.State.PRESENTING) {
+            return;
+        }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+        TestSession.Outcome outcome = session.answer(selectedOption);
+        if (outcome.timedOut) {
+            Log.debug("Question {}: answered after the time limit", outcome.questionId);
+        } else if (outcome.correct) {
+            Log.debug("Question {}: selected {}, correct, score is now {}", outcome.questionId, selectedOption, outcome.score);
+        } else {
+            Log.debug("Question {}: selected {}, incorrect", outcome.questionId, selectedOption);
         }
-    }
 
-    private int convertLetterToNumber(String letter) {
-        switch(letter.toUpperCase()) {
-            case "A": return 1;
-            case "B": return 2;
-            case "C": return 3;
-            case "D": return 4;
-            default: return 0;
+        // Check if test is complete BEFORE loading next question
+        if (outcome.finished) {
+            Log.info("Test {} complete, final score {}", session.getResultId(), outcome.score);
+            updateFinalScore();  // Update score in database
+            showCompletionDialog();
+        } else {
+            loadQuestion(session.getPosition());
         }
     }
 
@@ -519,12 +528,14 @@ public class IQTestFrame extends JFrame {
         titleLabel.setFont(new Font("Inter", Font.BOLD, 32));
         titleLabel.setForeground(new Color(248, 250, 252));
 
-        double percentage = (score * 100.0) / totalQuestions;
+        int score = session.getScore();
+        int asked = session.getPosition();  // Fewer than totalQuestions if an adaptive test stopped early
+        double percentage = (score * 100.0) / asked;
         JLabel percentageLabel = new JLabel(String.format("%.0f%%", percentage), SwingConstants.CENTER);
         percentageLabel.setFont(new Font("Inter", Font.BOLD, 56));
         percentageLabel.setForeground(new Color(59, 130, 246));
 
-        JLabel scoreLabel = new JLabel(score + " / " + totalQuestions + " correct", SwingConstants.CENTER);
+        JLabel scoreLabel = new JLabel(score + " / " + asked + " correct", SwingConstants.CENTER);
         scoreLabel.setFont(new Font("Inter", Font.PLAIN, 18));
         scoreLabel.setForeground(new Color(148, 163, 184));
 
@@ -592,26 +603,51 @@ public class IQTestFrame extends JFrame {
     }
 
     private void updateFinalScore() {
-        try {
-            Connection conn = DBConnection.getConnection();
-            PreparedStatement ps = conn.prepareStatement("UPDATE results SET score = ? WHERE result_id = ?");
-            ps.setInt(1, score);
-            ps.setInt(2, resultId);
-            int rowsUpdated = ps.executeUpdate();
-            System.out.println("Updating database: resultId=" + resultId + ", score=" + score + ", rows updated=" + rowsUpdated);
-            ps.close();
-            conn.close();
-        } catch (SQLException e) {
-            System.out.println("Error updating final score:");
-            e.printStackTrace();
-        }
+        int resultId = session.getResultId();
+        int finalScore = session.getScore();
+        // Buffered attempts and the final score go out in one transaction
+        completion = session.complete();
+        // Watch a copy so disposing the frame never cancels the write itself
+        tasks.run(completion.copy(),
+                ignored -> Log.info("Stored result {} with score {}", resultId, finalScore),
+                error -> Log.error("Could not store the final score of result {}", resultId, error));
     }
 
     private void showResultsFrame() {
-        new ResultsFrame(userId, resultId);
+        // The results screen reads what the final write stored
+        tasks.run(completion.copy(), ignored -> new ResultsFrame(userId, session.getResultId()), error ->
+                JOptionPane.showMessageDialog(this,
+                        "Error saving results: " + error.getMessage(),
+                        "Database Error",
+                        JOptionPane.ERROR_MESSAGE));
+    }
+
+    /**
+     * Stops the timer and drops pending UI callbacks; queued writes still complete
+     */
+    @Override
+    public void dispose() {
+        stopTimer();
+        tasks.cancelAll();
+        super.dispose();
     }
 
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new IQTestFrame());
     }
+
+    /**
+     * Label text of a question, ready to be swapped in on the EDT
+     */
+    private static final class PreparedQuestion {
+        final String questionHtml;
+        final String[] optionHtml = new String[4];
+
+        PreparedQuestion(Question question) {
+            questionHtml = "<html><center>" + question.getText() + "</center></html>";
+            for (int i = 0; i < 4; i++) {
+                optionHtml[i] = "<html>" + question.getOption(i) + "</html>";
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,405 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IQTestServer class - Serves the login, test, results and history flows as a JSON HTTP API
+ * Runs many candidates from one process: every request gets its own virtual thread, and
+ * all sessions share the connection pool, the QuestionBank and the attempt journals.
+ *
+ * Endpoints (all but register/login need "Authorization: Bearer &lt;token&gt;"):
+ * POST /api/register {username, email, password}
+ * POST /api/login {username, password} -> {token, userId}
+ * POST /api/tests -> {resultId, totalQuestions, adaptive, secondsPerQuestion}
+ *      (an adaptive test may finish before totalQuestions, its maximum length)
+ * GET  /api/tests/{resultId}/question -> current question and remaining seconds
+ * POST /api/tests/{resultId}/answer {option} -> grading outcome
+ * POST /api/tests/{resultId}/timeout -> grading outcome
+ * GET  /api/results/{resultId} -> summary and answers
+ * GET  /api/history -> the user's past results
+ * GET  /api/leaderboard?questions=N -> best result of the top users for tests of N questions
+ */
+public class IQTestServer {
+    // Sessions untouched for this long are abandoned, storing the attempts made so far
+    private static final long SESSION_IDLE_MILLIS = Long.getLong("iq.server.sessionIdleMillis", 30 * 60_000L);
+    // Tokens unused for this long stop working and are forgotten
+    private static final long TOKEN_IDLE_MILLIS = Long.getLong("iq.server.tokenIdleMillis", 12 * 60 * 60_000L);
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final HttpServer server;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Login> tokens = new ConcurrentHashMap<>();
+    private final Map<Integer, ActiveTest> tests = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "iq-server-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public IQTestServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        sweeper.scheduleWithFixedDelay(this::dropIdleTests, 1, 1, TimeUnit.MINUTES);
+        sweeper.scheduleWithFixedDelay(this::dropIdleTokens, 1, 1, TimeUnit.MINUTES);
+        Log.info("IQ Test server listening on port {}", server.getAddress().getPort());
+    }
+
+    public void stop() {
+        sweeper.shutdownNow();
+        server.stop(1);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+            Object response = route(exchange, method, path);
+            send(exchange, 200, response);
+        } catch (HttpError e) {
+            send(exchange, e.status, Json.object("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, Json.object("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            send(exchange, 409, Json.object("error", e.getMessage()));
+        } catch (SQLException e) {
+            Log.error("Database error in {}", exchange.getRequestURI(), e);
+            send(exchange, 503, Json.object("error", "Database error"));
+        } catch (RuntimeException e) {
+            Log.error("Request {} failed", exchange.getRequestURI(), e);
+            send(exchange, 500, Json.object("error", "Internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Object route(HttpExchange exchange, String method, String[] path) throws IOException, SQLException {
+        String resource = path[0];
+        if (method.equals("POST") && path.length == 1 && resource.equals("register")) {
+            return register(readBody(exchange));
+        }
+        if (method.equals("POST") && path.length == 1 && resource.equals("login")) {
+            return login(readBody(exchange));
+        }
+
+        int userId = authenticate(exchange);
+        if (resource.equals("tests")) {
+            if (method.equals("POST") && path.length == 1) {
+                return startTest(userId);
+            }
+            if (path.length == 3) {
+                ActiveTest test = findTest(userId, path[1]);
+                if (method.equals("GET") && path[2].equals("question")) {
+                    return currentQuestion(test);
+                }
+                if (method.equals("POST") && path[2].equals("answer")) {
+                    Object option = readBody(exchange).get("option");
+                    if (!(option instanceof String)) {
+                        throw new IllegalArgumentException("Missing option");
+                    }
+                    return finishStep(test, test.session.answer((String) option));
+                }
+                if (method.equals("POST") && path[2].equals("timeout")) {
+                    return finishStep(test, test.session.timeout());
+                }
+            }
+        }
+        if (method.equals("GET") && resource.equals("results") && path.length == 2) {
+            return results(userId, parseId(path[1]));
+        }
+        if (method.equals("GET") && resource.equals("history") && path.length == 1) {
+            return history(userId);
+        }
+        if (method.equals("GET") && resource.equals("leaderboard") && path.length == 1) {
+            return leaderboard(exchange.getRequestURI().getRawQuery());
+        }
+        throw new HttpError(404, "Not found");
+    }
+
+    private Object register(Map<String, Object> body) throws SQLException {
+        String username = requireString(body, "username");
+        String email = requireString(body, "email");
+        String password = requireString(body, "password");
+        if (!DataAccess.register(username, email, password)) {
+            throw new HttpError(409, "Username already exists");
+        }
+        return Json.object("registered", true);
+    }
+
+    private Object login(Map<String, Object> body) throws SQLException {
+        Integer userId = DataAccess.authenticate(requireString(body, "username"), requireString(body, "password"));
+        if (userId == null) {
+            throw new HttpError(401, "Invalid username or password");
+        }
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tokens.put(token, new Login(userId));
+        return Json.object("token", token, "userId", userId);
+    }
+
+    private Object startTest(int userId) throws SQLException {
+        TestSession session = new TestSession(userId, JdbcTestStorage.getInstance());
+        int resultId = session.start();
+        tests.put(resultId, new ActiveTest(session));
+        return Json.object(
+                "resultId", resultId,
+                "totalQuestions", session.getTotalQuestions(),
+                "adaptive", session.isAdaptive(),
+                "secondsPerQuestion", session.getSecondsPerQuestion());
+    }
+
+    private Object currentQuestion(ActiveTest test) throws SQLException {
+        TestSession session = test.session;
+        Question question;
+        // Asking again while a question is on screen returns the same question
+        synchronized (session) {
+            if (session.getState() == TestSession.State.READY) {
+                question = session.present();
+            } else if (session.getState() == TestSession.State.PRESENTING) {
+                question = session.questionAt(session.getPosition());
+            } else {
+                throw new IllegalStateException("Test is " + session.getState());
+            }
+        }
+        List<String> options = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            options.add(question.getOption(i));
+        }
+        return Json.object(
+                "position", session.getPosition() + 1,
+                "questionId", question.getId(),
+                "text", question.getText(),
+                "options", options,
+                "remainingSeconds", session.remainingSeconds());
+    }
+
+    private Object finishStep(ActiveTest test, TestSession.Outcome outcome) {
+        if (outcome.finished) {
+            test.completion = test.session.complete();
+        }
+        return Json.object(
+                "questionId", outcome.questionId,
+                "correct", outcome.correct,
+                "timedOut", outcome.timedOut,
+                "responseMs", TimeUnit.NANOSECONDS.toMillis(outcome.responseNanos),
+                "score", outcome.score,
+                "finished", outcome.finished);
+    }
+
+    private Object results(int userId, int resultId) throws SQLException {
+        // A test that just finished may still be writing its final batch
+        ActiveTest test = tests.get(resultId);
+        if (test != null && test.session.getUserId() == userId && test.completion != null) {
+            awaitCompletion(test);
+            tests.remove(resultId);
+        }
+
+        DataAccess.ResultDetail detail = ResultDetailCache.getInstance().get(resultId);
+        if (detail == null || detail.summary.userId != userId) {
+            throw new HttpError(404, "Result not found");
+        }
+        DataAccess.ResultSummary summary = detail.summary;
+        List<Object> answers = new ArrayList<>();
+        for (DataAccess.AttemptRow row : detail.attempts) {
+            answers.add(Json.object(
+                    "questionId", row.questionId,
+                    "chosenOption", row.chosenOption,
+                    "correctOption", row.correctOption,
+                    "correct", row.correct));
+        }
+        RankingService.Rank rank = summary.isAdaptive() ? null
+                : RankingService.getInstance().rank(summary.score, summary.totalQuestions);
+        return Json.object(
+                "resultId", resultId,
+                "score", summary.score,
+                "totalQuestions", summary.totalQuestions,
+                "percentage", summary.getPercentage(),
+                "percentile", rank == null ? null : rank.getPercentile(),
+                "iq", summary.getIq(),
+                "ability", summary.ability,
+                "abilityError", summary.abilityError,
+                "dateTaken", String.valueOf(summary.dateTaken),
+                "answers", answers);
+    }
+
+    private Object leaderboard(String query) {
+        int totalQuestions = TestSession.DEFAULT_TOTAL_QUESTIONS;
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("questions=")) {
+                    totalQuestions = Integer.parseInt(parameter.substring("questions=".length()));
+                }
+            }
+        }
+        List<Object> entries = new ArrayList<>();
+        for (RankingService.LeaderboardEntry entry : RankingService.getInstance().leaderboard(totalQuestions)) {
+            entries.add(Json.object(
+                    "username", entry.username,
+                    "score", entry.score,
+                    "resultId", entry.resultId));
+        }
+        return Json.object("totalQuestions", totalQuestions, "leaders", entries);
+    }
+
+    private Object history(int userId) throws SQLException {
+        List<Object> entries = new ArrayList<>();
+        for (DataAccess.HistoryEntry entry : DataAccess.loadHistory(userId)) {
+            entries.add(Json.object(
+                    "resultId", entry.resultId,
+                    "score", entry.score,
+                    "totalQuestions", entry.totalQuestions,
+                    "dateTaken", String.valueOf(entry.dateTaken)));
+        }
+        return Json.object("results", entries);
+    }
+
+    private void awaitCompletion(ActiveTest test) throws SQLException {
+        try {
+            test.completion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while saving the test", e);
+        } catch (ExecutionException e) {
+            throw new SQLException("Saving the test failed", e.getCause());
+        }
+    }
+
+    private int authenticate(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        String token = header != null && header.startsWith("Bearer ") ? header.substring("Bearer ".length()).trim() : null;
+        Login login = token != null ? tokens.get(token) : null;
+        long now = System.currentTimeMillis();
+        if (login == null || login.lastUse < now - TOKEN_IDLE_MILLIS) {
+            if (login != null) {
+                tokens.remove(token, login);
+            }
+            throw new HttpError(401, "Not signed in");
+        }
+        login.lastUse = now;
+        return login.userId;
+    }
+
+    private ActiveTest findTest(int userId, String id) {
+        ActiveTest test = tests.get(parseId(id));
+        if (test == null || test.session.getUserId() != userId) {
+            throw new HttpError(404, "Test not found");
+        }
+        test.lastAccess = System.currentTimeMillis();
+        return test;
+    }
+
+    private void dropIdleTests() {
+        long cutoff = System.currentTimeMillis() - SESSION_IDLE_MILLIS;
+        tests.values().removeIf(test -> {
+            if (test.lastAccess >= cutoff) {
+                return false;
+            }
+            // A finished test already released its journal when completing
+            if (test.completion == null) {
+                test.session.abandon();
+            }
+            return true;
+        });
+    }
+
+    private void dropIdleTokens() {
+        long cutoff = System.currentTimeMillis() - TOKEN_IDLE_MILLIS;
+        tokens.values().removeIf(login -> login.lastUse < cutoff);
+    }
+
+    private static int parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Not found");
+        }
+    }
+
+    private static String requireString(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (!(value instanceof String) || ((String) value).isBlank()) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return ((String) value).trim();
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Request body too large");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * The user a bearer token signs in, and when it was last used
+     */
+    private static final class Login {
+        final int userId;
+        volatile long lastUse = System.currentTimeMillis();
+
+        Login(int userId) {
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * A running test and the write that stores its final score
+     */
+    private static final class ActiveTest {
+        final TestSession session;
+        volatile CompletableFuture<Void> completion;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        ActiveTest(TestSession session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * Error reported to the client with an HTTP status
+     */
+    private static final class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * InMemoryTestStorage class - TestStorage that keeps everything on the heap
+ * Lets TestSession run, be load-tested and benchmarked without a database
+ */
+public class InMemoryTestStorage implements TestStorage {
+    private final Map<Integer, Question> questions = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> finalScores = new ConcurrentHashMap<>();
+    private final AtomicInteger nextResultId = new AtomicInteger(1);
+    private final LongAdder attempts = new LongAdder();
+    private final TestAssembler assembler;
+    // Built on the first adaptive test; most users of this class never start one
+    private CatItemBank itemBank;
+
+    public InMemoryTestStorage(Iterable<Question> questions) {
+        for (Question question : questions) {
+            this.questions.put(question.getId(), question);
+        }
+        this.assembler = new TestAssembler(this.questions.values());
+    }
+
+    @Override
+    public int createResult(int userId, int totalQuestions) {
+        return nextResultId.getAndIncrement();
+    }
+
+    @Override
+    public int[] assembleTest(int resultId, int userId, int totalQuestions) {
+        return assembler.draw(totalQuestions, ThreadLocalRandom.current());
+    }
+
+    @Override
+    public AdaptiveTest startAdaptiveTest(int resultId, int userId) {
+        return new AdaptiveTest(itemBank(), new QuestionBitmap());
+    }
+
+    private synchronized CatItemBank itemBank() {
+        if (itemBank == null) {
+            itemBank = CatItemBank.uncalibrated(questions.values());
+        }
+        return itemBank;
+    }
+
+    @Override
+    public Question loadQuestion(int questionId) {
+        return questions.get(questionId);
+    }
+
+    @Override
+    public void recordAttempt(int resultId, int questionId, String chosenOption, boolean correct, long responseNanos) {
+        attempts.increment();
+    }
+
+    @Override
+    public void completeTest(int resultId, int finalScore) {
+        finalScores.put(resultId, finalScore);
+    }
+
+    @Override
+    public void abandon(int resultId) {
+    }
+
+    @Override
+    public void completeAdaptiveTest(int resultId, int finalScore, int[] questionOrder, AdaptiveTest.Estimate estimate) {
+        finalScores.put(resultId, finalScore);
+    }
+
+    /**
+     * @return Final score of a completed test, or null if it has not completed
+     */
+    public Integer getFinalScore(int resultId) {
+        return finalScores.get(resultId);
+    }
+
+    public long getAttemptCount() {
+        return attempts.sum();
+    }
+}
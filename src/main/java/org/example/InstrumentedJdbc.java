@@ -0,0 +1,204 @@
+package org.example;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * InstrumentedJdbc class - Timing proxies around Connection, Statement and ResultSet
+ * Records prepare, execute and fetch time, row counts and errors of every statement
+ * into SqlStatistics. Everything else is passed straight through.
+ */
+final class InstrumentedJdbc {
+
+    private InstrumentedJdbc() {
+    }
+
+    static Connection connection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean prepare = name.equals("prepareStatement") || name.equals("prepareCall");
+            if (!prepare && !name.equals("createStatement")) {
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                }
+                return forward(connection, method, args);
+            }
+
+            // Plain statements get their shape from each execute call instead
+            SqlStatistics.StatementStats stats = prepare ? SqlStatistics.forSql((String) args[0]) : null;
+            long start = System.nanoTime();
+            Statement statement;
+            try {
+                statement = (Statement) forward(connection, method, args);
+            } catch (SQLException e) {
+                if (stats != null) {
+                    stats.errors.increment();
+                }
+                throw e;
+            }
+            if (stats != null) {
+                stats.prepare.record(System.nanoTime() - start);
+            }
+            return Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+                    new Class<?>[]{method.getReturnType()}, new StatementHandler(statement, stats));
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final SqlStatistics.StatementStats preparedStats;
+
+        StatementHandler(Statement statement, SqlStatistics.StatementStats preparedStats) {
+            this.statement = statement;
+            this.preparedStats = preparedStats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (!name.startsWith("execute") && !name.equals("getResultSet")) {
+                return forward(statement, method, args);
+            }
+
+            SqlStatistics.StatementStats stats = preparedStats;
+            if (stats == null && args != null && args.length > 0 && args[0] instanceof String) {
+                stats = SqlStatistics.forSql((String) args[0]);
+            }
+            if (stats == null) {
+                // Executing a plain statement without SQL is a driver error; let it report that
+                return forward(statement, method, args);
+            }
+            if (name.equals("getResultSet")) {
+                return wrapResultSet(forward(statement, method, args), stats);
+            }
+
+            TestEvents.DatabaseStatement event = new TestEvents.DatabaseStatement();
+            event.begin();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = forward(statement, method, args);
+            } catch (SQLException e) {
+                stats.errors.increment();
+                stats.execute.record(System.nanoTime() - start);
+                commitEvent(event, stats, 0, true);
+                throw e;
+            }
+            stats.execute.record(System.nanoTime() - start);
+            long rows = countRows(result);
+            stats.rows.add(rows);
+            commitEvent(event, stats, rows, false);
+            return wrapResultSet(result, stats);
+        }
+
+        private static long countRows(Object result) {
+            long rows = 0;
+            if (result instanceof Integer) {
+                rows = Math.max(0, (Integer) result);
+            } else if (result instanceof Long) {
+                rows = Math.max(0, (Long) result);
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+            }
+            return rows;
+        }
+
+        private static void commitEvent(TestEvents.DatabaseStatement event, SqlStatistics.StatementStats stats,
+                                        long rows, boolean failed) {
+            if (event.shouldCommit()) {
+                event.sql = stats.sql;
+                event.rows = rows;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+
+        private static Object wrapResultSet(Object result, SqlStatistics.StatementStats stats) {
+            if (!(result instanceof ResultSet)) {
+                return result;
+            }
+            return Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new ResultSetHandler((ResultSet) result, stats));
+        }
+    }
+
+    /**
+     * Adds up the time spent in next() and records it once the result is exhausted or closed
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final SqlStatistics.StatementStats stats;
+        private long fetchNanos;
+        private boolean recorded;
+
+        ResultSetHandler(ResultSet resultSet, SqlStatistics.StatementStats stats) {
+            this.resultSet = resultSet;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    long start = System.nanoTime();
+                    boolean hasRow = (Boolean) forward(resultSet, method, args);
+                    fetchNanos += System.nanoTime() - start;
+                    if (hasRow) {
+                        stats.rows.increment();
+                    } else {
+                        record();
+                    }
+                    return hasRow;
+                case "close":
+                    record();
+                    return forward(resultSet, method, args);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return forward(resultSet, method, args);
+            }
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                stats.fetch.record(fetchNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ItemStatistics class - Maintains item_stats, the classical item analysis of every question
+ * Per question: p-value (share answered correctly), point-biserial discrimination (correlation
+ * of getting it right with the rest of the test, as a share of the other questions, so the
+ * item does not correlate with itself), timeout rate and how often each option was chosen.
+ * Only completed fixed-length tests count towards these; adaptive tests target each
+ * candidate's level, which would bias both figures. The response-time histogram of each
+ * question (see ResponseTimes) takes answers from both kinds of test.
+ *
+ * refresh() reads the attempts of results completed since the stored high-water mark in one
+ * streaming pass: the question ID range is split fork/join style into slices, each read with
+ * its own server-side cursor into accumulators for just that slice. Every slice finds the new
+ * results through idx_results_completed and their attempts through
+ * idx_attempts_result_question, so a refresh reads only what completed since the last one.
+ * Each slice's sums are added to item_stats as soon as it has been read, so memory is bounded
+ * by the slices in flight rather than the size of the bank; all of it happens in the one
+ * transaction that moves the mark on. Results completed in the last
+ * iq.itemstats.lagSeconds seconds wait for the next refresh, so a completion that commits
+ * late is not skipped. Runs every iq.itemstats.refreshMinutes minutes once started.
+ */
+public final class ItemStatistics {
+    private static final long REFRESH_MINUTES = Long.getLong("iq.itemstats.refreshMinutes", 60);
+    private static final long LAG_SECONDS = Long.getLong("iq.itemstats.lagSeconds", 60);
+    // Question IDs per fork/join slice, and how many slices are read at once
+    private static final int SLICE_SIZE = Integer.getInteger("iq.itemstats.sliceSize", 5_000);
+    private static final int PARALLELISM = Integer.getInteger("iq.itemstats.parallelism",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final String SLICE_QUERY =
+            "SELECT a.question_id, a.chosen_option, a.is_correct, a.response_ms, r.score, r.total_questions, r.ability " +
+                    "FROM results r JOIN attempts a ON a.result_id = r.result_id " +
+                    "WHERE r.completed_on > ? AND r.completed_on <= ? AND a.question_id BETWEEN ? AND ?";
+    private static final String UPSERT =
+            "INSERT INTO item_stats(question_id, responses, correct, timeouts, chose_a, chose_b, chose_c, chose_d, " +
+                    "rest_sum, rest_sum_sq, rest_sum_correct, p_value, point_biserial, timeout_rate, " +
+                    "response_times, response_median_ms, response_p90_ms, updated_on) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE responses = VALUES(responses), correct = VALUES(correct), " +
+                    "timeouts = VALUES(timeouts), chose_a = VALUES(chose_a), chose_b = VALUES(chose_b), " +
+                    "chose_c = VALUES(chose_c), chose_d = VALUES(chose_d), rest_sum = VALUES(rest_sum), " +
+                    "rest_sum_sq = VALUES(rest_sum_sq), rest_sum_correct = VALUES(rest_sum_correct), " +
+                    "p_value = VALUES(p_value), point_biserial = VALUES(point_biserial), " +
+                    "timeout_rate = VALUES(timeout_rate), response_times = VALUES(response_times), " +
+                    "response_median_ms = VALUES(response_median_ms), response_p90_ms = VALUES(response_p90_ms), " +
+                    "updated_on = VALUES(updated_on)";
+    // Before the first refresh everything counts
+    private static final Timestamp BEGINNING = Timestamp.valueOf("1970-01-02 00:00:00");
+
+    private static final ItemStatistics INSTANCE = new ItemStatistics();
+
+    private ScheduledExecutorService scheduler;
+
+    private ItemStatistics() {
+    }
+
+    public static ItemStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Brings item_stats up to date (blocking) and schedules the periodic refresh
+     */
+    public void start() throws SQLException {
+        refresh();
+        synchronized (this) {
+            if (scheduler != null || REFRESH_MINUTES <= 0) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "item-stats-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (SQLException | RuntimeException e) {
+                Log.error("Could not refresh item statistics", e);
+            }
+        }, REFRESH_MINUTES, REFRESH_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Adds the attempts of results completed since the last refresh
+     * @return Number of questions whose statistics changed
+     */
+    public synchronized int refresh() throws SQLException {
+        long start = System.currentTimeMillis();
+        Timestamp through = Timestamp.valueOf(LocalDateTime.now().minusSeconds(LAG_SECONDS));
+        int[] range = questionIdRange();
+        if (range == null) {
+            return 0;
+        }
+        try (Connection conn = DataAccess.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                // Held until commit: a refresh running elsewhere waits, then starts from the moved mark
+                Timestamp from = BEGINNING;
+                PreparedStatement lock = conn.prepareStatement(
+                        "SELECT completed_through FROM item_stats_watermark WHERE id = 1 FOR UPDATE");
+                ResultSet rs = lock.executeQuery();
+                boolean hasRow = rs.next();
+                if (hasRow) {
+                    from = rs.getTimestamp(1);
+                }
+                rs.close();
+                lock.close();
+                if (!through.after(from)) {
+                    conn.rollback();
+                    return 0;
+                }
+
+                Merger merger = new Merger(conn);
+                ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+                try {
+                    pool.invoke(new Slice(range[0], range[1], from, through, merger));
+                } catch (SliceFailure e) {
+                    throw e.getCause();
+                } finally {
+                    pool.shutdown();
+                    merger.close();
+                }
+
+                PreparedStatement mark = conn.prepareStatement(hasRow
+                        ? "UPDATE item_stats_watermark SET completed_through = ? WHERE id = 1"
+                        : "INSERT INTO item_stats_watermark(completed_through, id) VALUES (?, 1)");
+                mark.setTimestamp(1, through);
+                mark.executeUpdate();
+                mark.close();
+                conn.commit();
+                Log.info("Refreshed statistics of {} questions from {} attempts in {} ms",
+                        merger.questions, merger.attempts, System.currentTimeMillis() - start);
+                return merger.questions;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Drops all statistics and recomputes them from every completed result
+     */
+    public synchronized int rebuild() throws SQLException {
+        try (Connection conn = DataAccess.connect();
+             Statement st = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            try {
+                st.executeUpdate("DELETE FROM item_stats");
+                st.executeUpdate("DELETE FROM item_stats_watermark");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return refresh();
+    }
+
+    private static Map<Integer, Accumulator> loadStored(Connection conn, List<Accumulator> deltas) throws SQLException {
+        Map<Integer, Accumulator> stored = new HashMap<>();
+        if (deltas.isEmpty()) {
+            return stored;
+        }
+        int low = Integer.MAX_VALUE;
+        int high = Integer.MIN_VALUE;
+        for (Accumulator delta : deltas) {
+            low = Math.min(low, delta.questionId);
+            high = Math.max(high, delta.questionId);
+        }
+        PreparedStatement ps = conn.prepareStatement("SELECT question_id, responses, correct, timeouts, " +
+                "chose_a, chose_b, chose_c, chose_d, rest_sum, rest_sum_sq, rest_sum_correct, response_times " +
+                "FROM item_stats WHERE question_id BETWEEN ? AND ?");
+        ps.setInt(1, low);
+        ps.setInt(2, high);
+        ResultSet rs = ps.executeQuery();
+        while (rs.next()) {
+            Accumulator accumulator = new Accumulator(rs.getInt("question_id"));
+            accumulator.responses = rs.getLong("responses");
+            accumulator.correct = rs.getLong("correct");
+            accumulator.timeouts = rs.getLong("timeouts");
+            accumulator.chosen[0] = rs.getLong("chose_a");
+            accumulator.chosen[1] = rs.getLong("chose_b");
+            accumulator.chosen[2] = rs.getLong("chose_c");
+            accumulator.chosen[3] = rs.getLong("chose_d");
+            accumulator.restSum = rs.getDouble("rest_sum");
+            accumulator.restSumSq = rs.getDouble("rest_sum_sq");
+            accumulator.restSumCorrect = rs.getDouble("rest_sum_correct");
+            byte[] responseTimes = rs.getBytes("response_times");
+            if (responseTimes != null) {
+                accumulator.responseTimes.merge(LatencyHistogram.fromBytes(responseTimes));
+            }
+            stored.put(accumulator.questionId, accumulator);
+        }
+        rs.close();
+        ps.close();
+        return stored;
+    }
+
+    private static int[] questionIdRange() throws SQLException {
+        try (Connection conn = DataAccess.connect();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(question_id), MAX(question_id) FROM questions")) {
+            if (!rs.next()) {
+                return null;
+            }
+            int min = rs.getInt(1);
+            return rs.wasNull() ? null : new int[]{min, rs.getInt(2)};
+        }
+    }
+
+    /**
+     * Adds the deltas of each slice to item_stats on the refresh transaction as soon as the
+     * slice has been read
+     */
+    private static final class Merger {
+        private final Connection conn;
+        private final PreparedStatement upsert;
+        private final Timestamp updatedOn = Timestamp.valueOf(LocalDateTime.now());
+        int questions;
+        long attempts;
+
+        Merger(Connection conn) throws SQLException {
+            this.conn = conn;
+            this.upsert = conn.prepareStatement(UPSERT);
+        }
+
+        synchronized void add(List<Accumulator> deltas) throws SQLException {
+            Map<Integer, Accumulator> stored = loadStored(conn, deltas);
+            int batched = 0;
+            for (Accumulator delta : deltas) {
+                Accumulator total = stored.getOrDefault(delta.questionId, new Accumulator(delta.questionId));
+                total.add(delta);
+                total.bind(upsert, updatedOn);
+                upsert.addBatch();
+                if (++batched % 500 == 0) {
+                    upsert.executeBatch();
+                }
+                questions++;
+                attempts += delta.responses;
+            }
+            upsert.executeBatch();
+        }
+
+        synchronized void close() throws SQLException {
+            upsert.close();
+        }
+    }
+
+    /**
+     * Reads the attempts of one question ID range and merges them, splitting it while it is
+     * wider than SLICE_SIZE
+     */
+    private static final class Slice extends RecursiveAction {
+        private final int firstId;
+        private final int lastId;
+        private final Timestamp from;
+        private final Timestamp through;
+        private final Merger merger;
+
+        Slice(int firstId, int lastId, Timestamp from, Timestamp through, Merger merger) {
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.from = from;
+            this.through = through;
+            this.merger = merger;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) lastId - firstId + 1 > SLICE_SIZE) {
+                int middle = (int) (((long) firstId + lastId) / 2);
+                invokeAll(new Slice(firstId, middle, from, through, merger),
+                        new Slice(middle + 1, lastId, from, through, merger));
+                return;
+            }
+            try {
+                List<Accumulator> deltas = read();
+                if (!deltas.isEmpty()) {
+                    merger.add(deltas);
+                }
+            } catch (SQLException e) {
+                throw new SliceFailure(e);
+            }
+        }
+
+        private List<Accumulator> read() throws SQLException {
+            // Indexed by question_id - firstId; only the questions that had attempts are returned
+            Accumulator[] byQuestion = new Accumulator[lastId - firstId + 1];
+            try (Connection conn = DataAccess.connect()) {
+                PreparedStatement ps = conn.prepareStatement(SLICE_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                // MySQL Connector/J only streams row by row with this sentinel; other drivers read it as a batch size
+                boolean mysql = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+                ps.setFetchSize(mysql ? Integer.MIN_VALUE : 1_000);
+                ps.setTimestamp(1, from);
+                ps.setTimestamp(2, through);
+                ps.setInt(3, firstId);
+                ps.setInt(4, lastId);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    int questionId = rs.getInt(1);
+                    Accumulator accumulator = byQuestion[questionId - firstId];
+                    if (accumulator == null) {
+                        accumulator = new Accumulator(questionId);
+                        byQuestion[questionId - firstId] = accumulator;
+                    }
+                    int responseMillis = rs.getInt(4);
+                    if (rs.wasNull()) {
+                        responseMillis = -1;
+                    }
+                    boolean adaptive = rs.getObject(7) != null;
+                    accumulator.add(rs.getString(2), rs.getBoolean(3), responseMillis, rs.getInt(5), rs.getInt(6), adaptive);
+                }
+                rs.close();
+                ps.close();
+            }
+            List<Accumulator> touched = new ArrayList<>();
+            for (Accumulator accumulator : byQuestion) {
+                if (accumulator != null) {
+                    touched.add(accumulator);
+                }
+            }
+            return touched;
+        }
+    }
+
+    /**
+     * Carries a slice's SQLException out of the fork/join pool
+     */
+    private static final class SliceFailure extends RuntimeException {
+        SliceFailure(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    /**
+     * Running sums of one question, from which every statistic can be derived
+     */
+    static final class Accumulator {
+        final int questionId;
+        long responses;
+        long correct;
+        long timeouts;
+        final long[] chosen = new long[4];
+        // Rest score: share of the test's other questions answered correctly
+        double restSum;
+        double restSumSq;
+        double restSumCorrect;
+        final LatencyHistogram responseTimes = ResponseTimes.newHistogram();
+
+        Accumulator(int questionId) {
+            this.questionId = questionId;
+        }
+
+        /**
+         * @param responseMillis -1 when not known
+         * @param adaptive Whether the attempt was part of an adaptive test, which only adds its response time
+         */
+        void add(String chosenOption, boolean isCorrect, int responseMillis, int score, int totalQuestions, boolean adaptive) {
+            if (ResponseTimes.counts(chosenOption, responseMillis)) {
+                responseTimes.record(responseMillis);
+            }
+            if (adaptive) {
+                return;
+            }
+            responses++;
+            if (isCorrect) {
+                correct++;
+            }
+            if (TestSession.TIMEOUT_OPTION.equals(chosenOption)) {
+                timeouts++;
+            } else if (chosenOption != null) {
+                int option = TestSession.optionNumber(chosenOption);
+                if (option > 0) {
+                    chosen[option - 1]++;
+                }
+            }
+            double rest = totalQuestions > 1 ? (score - (isCorrect ? 1 : 0)) / (double) (totalQuestions - 1) : 0;
+            restSum += rest;
+            restSumSq += rest * rest;
+            if (isCorrect) {
+                restSumCorrect += rest;
+            }
+        }
+
+        void add(Accumulator other) {
+            responses += other.responses;
+            correct += other.correct;
+            timeouts += other.timeouts;
+            for (int i = 0; i < chosen.length; i++) {
+                chosen[i] += other.chosen[i];
+            }
+            restSum += other.restSum;
+            restSumSq += other.restSumSq;
+            restSumCorrect += other.restSumCorrect;
+            responseTimes.merge(other.responseTimes);
+        }
+
+        /**
+         * @return Share of responses that were correct, or null without responses
+         */
+        Double pValue() {
+            return responses == 0 ? null : (double) correct / responses;
+        }
+
+        /**
+         * @return Correlation of answering correctly with the rest score, or null when either never varies
+         */
+        Double pointBiserial() {
+            if (responses == 0 || correct == 0 || correct == responses) {
+                return null;
+            }
+            double n = responses;
+            double p = correct / n;
+            double mean = restSum / n;
+            double variance = restSumSq / n - mean * mean;
+            if (variance <= 1e-12) {
+                return null;
+            }
+            // Pearson correlation of a 0/1 variable with the rest score
+            return (restSumCorrect / n - p * mean) / Math.sqrt(variance * p * (1 - p));
+        }
+
+        Double timeoutRate() {
+            return responses == 0 ? null : (double) timeouts / responses;
+        }
+
+        void bind(PreparedStatement ps, Timestamp updatedOn) throws SQLException {
+            ps.setInt(1, questionId);
+            ps.setLong(2, responses);
+            ps.setLong(3, correct);
+            ps.setLong(4, timeouts);
+            for (int i = 0; i < chosen.length; i++) {
+                ps.setLong(5 + i, chosen[i]);
+            }
+            ps.setDouble(9, restSum);
+            ps.setDouble(10, restSumSq);
+            ps.setDouble(11, restSumCorrect);
+            ps.setObject(12, pValue());
+            ps.setObject(13, pointBiserial());
+            ps.setObject(14, timeoutRate());
+            ps.setBytes(15, responseTimes.toBytes());
+            ResponseTimes.setPercentile(ps, 16, responseTimes, 50);
+            ResponseTimes.setPercentile(ps, 17, responseTimes, 90);
+            ps.setTimestamp(18, updatedOn);
+        }
+    }
+}
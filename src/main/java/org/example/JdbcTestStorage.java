@@ -0,0 +1,94 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JdbcTestStorage class - TestStorage backed by the MySQL database
+ * Questions come from the shared QuestionBank, attempts go through one
+ * AttemptJournal per running test
+ */
+public final class JdbcTestStorage implements TestStorage {
+    private static final JdbcTestStorage INSTANCE = new JdbcTestStorage();
+
+    private final Map<Integer, AttemptJournal> journals = new ConcurrentHashMap<>();
+
+    private JdbcTestStorage() {
+    }
+
+    public static JdbcTestStorage getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public int createResult(int userId, int totalQuestions) throws SQLException {
+        int resultId = DataAccess.createResult(userId, totalQuestions);
+        // Load every question once so the rest of the test runs from memory
+        QuestionBank.getInstance().preload();
+        journals.put(resultId, new AttemptJournal(resultId));
+        return resultId;
+    }
+
+    @Override
+    public int[] assembleTest(int resultId, int userId, int totalQuestions) throws SQLException {
+        QuestionBitmap seen = SeenQuestions.load(userId);
+        int[] order;
+        try {
+            order = QuestionBank.getInstance().getAssembler().draw(totalQuestions, ThreadLocalRandom.current(), seen);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Cannot assemble test " + resultId + ": " + e.getMessage(), e);
+        }
+        DataAccess.saveQuestionOrder(resultId, order);
+        return order;
+    }
+
+    @Override
+    public AdaptiveTest startAdaptiveTest(int resultId, int userId) throws SQLException {
+        return new AdaptiveTest(QuestionBank.getInstance().getItemBank(), SeenQuestions.load(userId));
+    }
+
+    @Override
+    public Question loadQuestion(int questionId) throws SQLException {
+        return QuestionBank.getInstance().get(questionId);
+    }
+
+    @Override
+    public void recordAttempt(int resultId, int questionId, String chosenOption, boolean correct, long responseNanos) {
+        journal(resultId).record(questionId, chosenOption, correct,
+                (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(responseNanos)));
+    }
+
+    @Override
+    public void completeTest(int resultId, int finalScore) throws SQLException {
+        // Buffered attempts and the final score go out in one transaction
+        journal(resultId).complete(finalScore);
+        journals.remove(resultId);
+    }
+
+    @Override
+    public void completeAdaptiveTest(int resultId, int finalScore, int[] questionOrder, AdaptiveTest.Estimate estimate) throws SQLException {
+        // The order is only known once the test is over, since each question depended on the
+        // answers before it; it is stored in the transaction that completes the result
+        journal(resultId).complete(finalScore, estimate, questionOrder);
+        journals.remove(resultId);
+    }
+
+    @Override
+    public void abandon(int resultId) throws SQLException {
+        AttemptJournal journal = journals.remove(resultId);
+        if (journal != null) {
+            journal.abandon();
+        }
+    }
+
+    private AttemptJournal journal(int resultId) {
+        AttemptJournal journal = journals.get(resultId);
+        if (journal == null) {
+            throw new IllegalStateException("No test in progress for result " + resultId);
+        }
+        return journal;
+    }
+}
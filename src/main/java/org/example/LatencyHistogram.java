@@ -0,0 +1,228 @@
+package org.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram class - Fixed-size, log-bucketed histogram of non-negative values
+ * Each power of two is split into linear sub-buckets (HdrHistogram style), so the
+ * relative error of a percentile is bounded by the precision while memory stays
+ * constant. Recording is lock-free and safe from many threads. Histograms of the same
+ * shape can be merged, and toBytes() stores one in a few bytes per non-empty bucket.
+ */
+public class LatencyHistogram {
+    private static final byte FORMAT_VERSION = 1;
+    public static final int DEFAULT_SUB_BUCKET_BITS = 7;
+    public static final long DEFAULT_MAX_VALUE = TimeUnit.MINUTES.toNanos(10);
+
+    private final int subBucketBits;
+    private final int subBucketHalf;
+    private final long maxValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxRecorded = new AtomicLong();
+
+    /**
+     * Histogram for nanosecond latencies up to 10 minutes with ~1.6% precision
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_SUB_BUCKET_BITS, DEFAULT_MAX_VALUE);
+    }
+
+    /**
+     * @param subBucketBits Sub-buckets per power of two = 2^(bits-1); relative error ~ 2^-(bits-1)
+     * @param maxValue Largest value tracked exactly; larger values are clamped to it
+     */
+    public LatencyHistogram(int subBucketBits, long maxValue) {
+        if (subBucketBits < 2 || subBucketBits > 16 || maxValue < 1) {
+            throw new IllegalArgumentException("Invalid histogram shape: bits=" + subBucketBits + ", max=" + maxValue);
+        }
+        this.subBucketBits = subBucketBits;
+        this.subBucketHalf = 1 << (subBucketBits - 1);
+        this.maxValue = maxValue;
+        this.counts = new AtomicLongArray(indexOf(maxValue) + 1);
+    }
+
+    /**
+     * Records one value; negative values count as 0, values above the maximum are clamped
+     */
+    public void record(long value) {
+        long v = value < 0 ? 0 : Math.min(value, maxValue);
+        counts.incrementAndGet(indexOf(v));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(v);
+        maxRecorded.accumulateAndGet(v, Math::max);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return maxRecorded.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalSum.get() / count;
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return Upper bound of the bucket holding that percentile (0 when empty)
+     */
+    public long valueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), maxRecorded.get());
+            }
+        }
+        return maxRecorded.get();
+    }
+
+    /**
+     * Adds every value recorded in another histogram of the same shape
+     */
+    public void merge(LatencyHistogram other) {
+        if (other.subBucketBits != subBucketBits || other.maxValue != maxValue) {
+            throw new IllegalArgumentException("Cannot merge a histogram of bits=" + other.subBucketBits
+                    + ", max=" + other.maxValue + " into one of bits=" + subBucketBits + ", max=" + maxValue);
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalSum.addAndGet(other.totalSum.get());
+        maxRecorded.accumulateAndGet(other.maxRecorded.get(), Math::max);
+    }
+
+    /**
+     * Serializes the shape and the non-empty buckets, as gaps and counts in variable-length bytes
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(subBucketBits);
+            writeVarLong(out, maxValue);
+            writeVarLong(out, totalCount.get());
+            writeVarLong(out, totalSum.get());
+            writeVarLong(out, maxRecorded.get());
+            int previous = -1;
+            for (int i = 0; i < counts.length(); i++) {
+                long count = counts.get(i);
+                if (count != 0) {
+                    writeVarLong(out, i - previous);
+                    writeVarLong(out, count);
+                    previous = i;
+                }
+            }
+            // A gap of 0 ends the buckets
+            writeVarLong(out, 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize latency histogram", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a histogram written by toBytes(), in the shape it was written with
+     */
+    public static LatencyHistogram fromBytes(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported latency histogram format " + version);
+            }
+            LatencyHistogram histogram = new LatencyHistogram(in.readByte(), readVarLong(in));
+            histogram.totalCount.set(readVarLong(in));
+            histogram.totalSum.set(readVarLong(in));
+            histogram.maxRecorded.set(readVarLong(in));
+            int index = -1;
+            long gap;
+            while ((gap = readVarLong(in)) != 0) {
+                index += (int) gap;
+                histogram.counts.set(index, readVarLong(in));
+            }
+            return histogram;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt latency histogram", e);
+        }
+    }
+
+    public int getSubBucketBits() {
+        return subBucketBits;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Clears all counts
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        maxRecorded.set(0);
+    }
+
+    int indexOf(long value) {
+        if (value < (subBucketHalf << 1)) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - subBucketBits + 1;
+        int top = (int) (value >>> shift);
+        return (shift + 1) * subBucketHalf + (top - subBucketHalf);
+    }
+
+    long highestValueAt(int index) {
+        if (index < (subBucketHalf << 1)) {
+            return index;
+        }
+        int shift = index / subBucketHalf - 1;
+        long top = index - (long) shift * subBucketHalf;
+        return ((top + 1) << shift) - 1;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Variable-length number is too long");
+    }
+}
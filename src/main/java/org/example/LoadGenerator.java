@@ -0,0 +1,202 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadGenerator class - Simulates many candidates taking the test at once
+ * Each virtual user registers, logs in, starts a test, answers every question with
+ * a think time, then opens its results and history - through the same DataAccess,
+ * TestSession and JdbcTestStorage code the frames use. Prints and writes per-operation
+ * throughput and p50/p95/p99 latency as JSON so runs can be compared across versions.
+ *
+ * Usage: LoadGenerator [--users N] [--think-ms T] [--ramp-up-ms R] [--output file.json]
+ */
+public class LoadGenerator {
+    private static final String[] OPTIONS = {"A", "B", "C", "D"};
+
+    private final int users;
+    private final long thinkMillis;
+    private final long rampUpMillis;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final LongAdder completedUsers = new LongAdder();
+
+    public LoadGenerator(int users, long thinkMillis, long rampUpMillis) {
+        this.users = users;
+        this.thinkMillis = thinkMillis;
+        this.rampUpMillis = rampUpMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "50"));
+        long thinkMillis = Long.parseLong(options.getOrDefault("think-ms", "500"));
+        long rampUpMillis = Long.parseLong(options.getOrDefault("ramp-up-ms", "5000"));
+        Path output = Paths.get(options.getOrDefault("output", "loadtest-" + System.currentTimeMillis() + ".json"));
+
+        LoadGenerator generator = new LoadGenerator(users, thinkMillis, rampUpMillis);
+        Map<String, Object> report = generator.run();
+        Files.writeString(output, Json.write(report), StandardCharsets.UTF_8);
+        System.out.println("Report written to " + output.toAbsolutePath());
+        System.exit(0);
+    }
+
+    /**
+     * Runs every virtual user to completion
+     * @return Machine-readable report
+     */
+    public Map<String, Object> run() throws InterruptedException {
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                long startDelay = users > 1 ? rampUpMillis * i / (users - 1) : 0;
+                int user = i;
+                executor.submit(() -> {
+                    try {
+                        Thread.sleep(startDelay);
+                        runUser(user);
+                        completedUsers.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        // Already counted as an error of the failing operation
+                    }
+                    return null;
+                });
+            }
+        }
+        long elapsedNanos = System.nanoTime() - started;
+
+        Map<String, Object> report = buildReport(elapsedNanos);
+        printReport(report);
+        return report;
+    }
+
+    private void runUser(int user) throws Exception {
+        String username = "load_" + runId + "_" + user;
+        String password = "pw" + user;
+
+        time("register", () -> {
+            if (!DataAccess.register(username, username + "@example.com", password)) {
+                throw new SQLException("User " + username + " already exists");
+            }
+            return null;
+        });
+        Integer userId = time("login", () -> DataAccess.authenticate(username, password));
+        if (userId == null) {
+            throw new SQLException("Login failed for " + username);
+        }
+
+        TestSession session = new TestSession(userId, JdbcTestStorage.getInstance());
+        int resultId = time("startTest", session::start);
+        // An adaptive test may finish before getTotalQuestions(), its maximum length
+        boolean finished = false;
+        while (!finished) {
+            time("loadQuestion", session::present);
+            think();
+            String option = OPTIONS[ThreadLocalRandom.current().nextInt(OPTIONS.length)];
+            finished = time("answer", () -> session.answer(option)).finished;
+        }
+        time("completeTest", () -> session.complete().join());
+
+        time("results", () -> ResultDetailCache.getInstance().get(resultId));
+        time("history", () -> DataAccess.loadHistory(userId));
+    }
+
+    private void think() throws InterruptedException {
+        if (thinkMillis > 0) {
+            // Uniform jitter of +/-50% so users do not move in lockstep
+            long jittered = thinkMillis / 2 + ThreadLocalRandom.current().nextLong(thinkMillis + 1);
+            Thread.sleep(jittered);
+        }
+    }
+
+    private <T> T time(String name, AsyncDataAccess.SqlCall<T> call) throws SQLException {
+        Operation operation = operations.computeIfAbsent(name, n -> new Operation());
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            operation.latency.record(System.nanoTime() - start);
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            operation.errors.increment();
+            throw e;
+        }
+    }
+
+    private Map<String, Object> buildReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        Map<String, Object> ops = new LinkedHashMap<>();
+        for (String name : new String[]{"register", "login", "startTest", "loadQuestion", "answer",
+                "completeTest", "results", "history"}) {
+            Operation operation = operations.get(name);
+            if (operation == null) {
+                continue;
+            }
+            LatencyHistogram latency = operation.latency;
+            ops.put(name, Json.object(
+                    "count", latency.getCount(),
+                    "errors", operation.errors.sum(),
+                    "throughputPerSecond", latency.getCount() / seconds,
+                    "meanMillis", latency.getMean() / 1e6,
+                    "p50Millis", latency.valueAtPercentile(50) / 1e6,
+                    "p95Millis", latency.valueAtPercentile(95) / 1e6,
+                    "p99Millis", latency.valueAtPercentile(99) / 1e6,
+                    "maxMillis", latency.getMax() / 1e6));
+        }
+        return Json.object(
+                "runId", runId,
+                "startedAt", Instant.now().minusNanos(elapsedNanos).toString(),
+                "users", users,
+                "completedUsers", completedUsers.sum(),
+                "thinkMillis", thinkMillis,
+                "rampUpMillis", rampUpMillis,
+                "durationSeconds", seconds,
+                "operations", ops);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printReport(Map<String, Object> report) {
+        System.out.printf("%d/%d users completed in %.1f s%n",
+                (Long) report.get("completedUsers"), (Integer) report.get("users"), (Double) report.get("durationSeconds"));
+        System.out.printf("%-14s %8s %7s %10s %9s %9s %9s%n", "operation", "count", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms");
+        Map<String, Object> ops = (Map<String, Object>) report.get("operations");
+        for (Map.Entry<String, Object> entry : ops.entrySet()) {
+            Map<String, Object> op = (Map<String, Object>) entry.getValue();
+            System.out.printf("%-14s %8d %7d %10.1f %9.2f %9.2f %9.2f%n", entry.getKey(),
+                    (Long) op.get("count"), (Long) op.get("errors"), (Double) op.get("throughputPerSecond"),
+                    (Double) op.get("p50Millis"), (Double) op.get("p95Millis"), (Double) op.get("p99Millis"));
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Latency and error count of one kind of operation
+     */
+    private static final class Operation {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+}
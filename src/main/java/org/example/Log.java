@@ -0,0 +1,499 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log class - Asynchronous logger backed by a pre-allocated ring buffer
+ * Callers only copy the template and its arguments into a free slot, so logging never
+ * blocks on disk or stdout and the overloads taking long arguments allocate nothing.
+ * A single writer thread formats "{}" placeholders, writes to a rolling file in
+ * iq.log.dir (default ~/.iq-test/logs) and echoes to the console. When the buffer is
+ * full, debug and info messages are dropped and counted rather than making the caller
+ * wait; warnings and errors wait up to 10 ms for a free slot.
+ *
+ * Settings (system properties): iq.log.level (INFO), iq.log.dir, iq.log.maxFileBytes (10 MB),
+ * iq.log.maxFiles (5), iq.log.bufferSize (8192 entries), iq.log.console (true)
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final Level THRESHOLD = Level.valueOf(
+            System.getProperty("iq.log.level", "INFO").trim().toUpperCase(Locale.ROOT));
+    private static final boolean CONSOLE = Boolean.parseBoolean(System.getProperty("iq.log.console", "true"));
+    private static final Path DIR = Paths.get(System.getProperty("iq.log.dir",
+            System.getProperty("user.home") + "/.iq-test/logs"));
+    private static final String FILE_NAME = "iq-test.log";
+    private static final long MAX_FILE_BYTES = Long.getLong("iq.log.maxFileBytes", 10L << 20);
+    private static final int MAX_FILES = Math.max(1, Integer.getInteger("iq.log.maxFiles", 5));
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(64, Integer.getInteger("iq.log.bufferSize", 8192)));
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long FLUSH_TIMEOUT_MILLIS = 2_000;
+    private static final long FULL_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final DateTimeFormatter SECOND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Marks an argument slot whose value is in the matching long field
+    private static final Object LONG_ARG = new Object();
+
+    private static final Entry[] RING = new Entry[CAPACITY];
+    // Next sequence number to hand to a caller
+    private static final AtomicLong HEAD = new AtomicLong();
+    // Next sequence number the writer will format; slots below it are free again
+    private static volatile long tail;
+    // Everything below this sequence number has reached the file
+    private static volatile long flushedTo;
+    private static volatile boolean writerParked;
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final Thread WRITER;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            RING[i] = new Entry();
+        }
+        WRITER = new Thread(new WriterLoop(), "log-writer");
+        WRITER.setDaemon(true);
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+    }
+
+    private Log() {
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(THRESHOLD) >= 0;
+    }
+
+    public static void debug(String message) {
+        if (isEnabled(Level.DEBUG)) {
+            append(Level.DEBUG, message, 0, null, 0, null, 0, null, 0, null);
+        }
+    }
+
+    public static void debug(String template, long a) {
+        if (isEnabled(Level.DEBUG)) {
+            append(Level.DEBUG, template, 1, LONG_ARG, a, null, 0, null, 0, null);
+        }
+    }
+
+    public static void debug(String template, long a, long b) {
+        if (isEnabled(Level.DEBUG)) {
+            append(Level.DEBUG, template, 2, LONG_ARG, a, LONG_ARG, b, null, 0, null);
+        }
+    }
+
+    public static void debug(String template, long a, Object b) {
+        if (isEnabled(Level.DEBUG)) {
+            append(Level.DEBUG, template, 2, LONG_ARG, a, b, 0, null, 0, null);
+        }
+    }
+
+    public static void debug(String template, long a, Object b, long c) {
+        if (isEnabled(Level.DEBUG)) {
+            append(Level.DEBUG, template, 3, LONG_ARG, a, b, 0, LONG_ARG, c, null);
+        }
+    }
+
+    public static void debug(String template, Object a) {
+        if (isEnabled(Level.DEBUG)) {
+            append(Level.DEBUG, template, 1, a, 0, null, 0, null, 0, null);
+        }
+    }
+
+    public static void info(String message) {
+        if (isEnabled(Level.INFO)) {
+            append(Level.INFO, message, 0, null, 0, null, 0, null, 0, null);
+        }
+    }
+
+    public static void info(String template, long a) {
+        if (isEnabled(Level.INFO)) {
+            append(Level.INFO, template, 1, LONG_ARG, a, null, 0, null, 0, null);
+        }
+    }
+
+    public static void info(String template, long a, long b) {
+        if (isEnabled(Level.INFO)) {
+            append(Level.INFO, template, 2, LONG_ARG, a, LONG_ARG, b, null, 0, null);
+        }
+    }
+
+    public static void info(String template, Object a) {
+        if (isEnabled(Level.INFO)) {
+            append(Level.INFO, template, 1, a, 0, null, 0, null, 0, null);
+        }
+    }
+
+    public static void info(String template, long a, long b, long c) {
+        if (isEnabled(Level.INFO)) {
+            append(Level.INFO, template, 3, LONG_ARG, a, LONG_ARG, b, LONG_ARG, c, null);
+        }
+    }
+
+    public static void warn(String message) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, message, 0, null, 0, null, 0, null, 0, null);
+        }
+    }
+
+    public static void warn(String template, long a) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, template, 1, LONG_ARG, a, null, 0, null, 0, null);
+        }
+    }
+
+    public static void warn(String template, Object a) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, template, 1, a, 0, null, 0, null, 0, null);
+        }
+    }
+
+    public static void warn(String template, Object a, Object b, Object c) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, template, 3, a, 0, b, 0, c, 0, null);
+        }
+    }
+
+    public static void warn(String message, Throwable error) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, message, 0, null, 0, null, 0, null, 0, error);
+        }
+    }
+
+    public static void warn(String template, long a, Throwable error) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, template, 1, LONG_ARG, a, null, 0, null, 0, error);
+        }
+    }
+
+    public static void warn(String template, Object a, Throwable error) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, template, 1, a, 0, null, 0, null, 0, error);
+        }
+    }
+
+    public static void warn(String template, long a, Object b, Throwable error) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, template, 2, LONG_ARG, a, b, 0, null, 0, error);
+        }
+    }
+
+    public static void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            append(Level.ERROR, message, 0, null, 0, null, 0, null, 0, error);
+        }
+    }
+
+    public static void error(String template, long a, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            append(Level.ERROR, template, 1, LONG_ARG, a, null, 0, null, 0, error);
+        }
+    }
+
+    public static void error(String template, Object a, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            append(Level.ERROR, template, 1, a, 0, null, 0, null, 0, error);
+        }
+    }
+
+    /**
+     * Waits (up to 2 seconds) until everything logged so far is written to the file
+     */
+    public static void flush() {
+        long target = HEAD.get();
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+        while (flushedTo < target && System.currentTimeMillis() < deadline) {
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * @return Messages dropped so far because the buffer was full
+     */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    private static void append(Level level, String template, int argCount,
+                               Object a, long la, Object b, long lb, Object c, long lc, Throwable error) {
+        long sequence;
+        long waitDeadline = 0;
+        while (true) {
+            sequence = HEAD.get();
+            if (sequence - tail >= CAPACITY) {
+                // Warnings and errors are rare and worth a short wait; everything else is dropped
+                if (level.compareTo(Level.WARN) < 0) {
+                    DROPPED.increment();
+                    return;
+                }
+                long now = System.nanoTime();
+                if (waitDeadline == 0) {
+                    waitDeadline = now + FULL_WAIT_NANOS;
+                } else if (now - waitDeadline >= 0) {
+                    DROPPED.increment();
+                    return;
+                }
+                LockSupport.unpark(WRITER);
+                LockSupport.parkNanos(FULL_WAIT_NANOS / 100);
+                continue;
+            }
+            if (HEAD.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+
+        Entry entry = RING[(int) sequence & (CAPACITY - 1)];
+        entry.timeMillis = System.currentTimeMillis();
+        entry.level = level;
+        entry.thread = Thread.currentThread().getName();
+        entry.template = template;
+        entry.argCount = argCount;
+        entry.a = a;
+        entry.la = la;
+        entry.b = b;
+        entry.lb = lb;
+        entry.c = c;
+        entry.lc = lc;
+        entry.error = error;
+        entry.published = sequence;
+        if (writerParked) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+
+    /**
+     * One reusable slot of the ring buffer
+     */
+    private static final class Entry {
+        // Sequence number of the message in this slot once it is complete
+        volatile long published = -1;
+        long timeMillis;
+        Level level;
+        String thread;
+        String template;
+        int argCount;
+        Object a;
+        Object b;
+        Object c;
+        long la;
+        long lb;
+        long lc;
+        Throwable error;
+
+        void clear() {
+            thread = null;
+            template = null;
+            a = null;
+            b = null;
+            c = null;
+            error = null;
+        }
+    }
+
+    /**
+     * Drains the ring buffer in order; the only thread that formats or does I/O
+     */
+    private static final class WriterLoop implements Runnable {
+        private final StringBuilder line = new StringBuilder(256);
+        private char[] chars = new char[256];
+        private Writer file;
+        private long fileBytes;
+        private boolean fileFailed;
+        private long droppedReported;
+        private long cachedSecond = Long.MIN_VALUE;
+        private String cachedSecondText;
+
+        @Override
+        public void run() {
+            while (true) {
+                long sequence = tail;
+                Entry entry = RING[(int) sequence & (CAPACITY - 1)];
+                if (entry.published != sequence) {
+                    idle(sequence);
+                    continue;
+                }
+                try {
+                    format(entry);
+                    output(entry.level);
+                } catch (RuntimeException e) {
+                    // A broken toString() of an argument must not stop the writer
+                    System.err.println("Could not write log message: " + e);
+                }
+                entry.clear();
+                tail = sequence + 1;
+            }
+        }
+
+        private void idle(long sequence) {
+            long dropped = DROPPED.sum() - droppedReported;
+            if (dropped > 0) {
+                droppedReported += dropped;
+                line.setLength(0);
+                appendPrefix(System.currentTimeMillis(), Level.WARN, "log-writer");
+                line.append(dropped).append(" log messages dropped, the buffer was full").append(System.lineSeparator());
+                output(Level.WARN);
+            }
+            flushFile();
+            flushedTo = sequence;
+
+            writerParked = true;
+            if (RING[(int) sequence & (CAPACITY - 1)].published != sequence) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            writerParked = false;
+        }
+
+        private void format(Entry entry) {
+            line.setLength(0);
+            appendPrefix(entry.timeMillis, entry.level, entry.thread);
+            String template = entry.template;
+            int arg = 0;
+            for (int i = 0; i < template.length(); i++) {
+                char ch = template.charAt(i);
+                if (ch == '{' && i + 1 < template.length() && template.charAt(i + 1) == '}' && arg < entry.argCount) {
+                    appendArg(entry, arg++);
+                    i++;
+                } else {
+                    line.append(ch);
+                }
+            }
+            line.append(System.lineSeparator());
+            if (entry.error != null) {
+                StringWriter trace = new StringWriter();
+                entry.error.printStackTrace(new PrintWriter(trace));
+                line.append(trace.getBuffer());
+            }
+        }
+
+        private void appendArg(Entry entry, int index) {
+            Object value = index == 0 ? entry.a : index == 1 ? entry.b : entry.c;
+            if (value == LONG_ARG) {
+                line.append(index == 0 ? entry.la : index == 1 ? entry.lb : entry.lc);
+            } else {
+                line.append(value);
+            }
+        }
+
+        private void appendPrefix(long timeMillis, Level level, String thread) {
+            long second = Math.floorDiv(timeMillis, 1000);
+            if (second != cachedSecond) {
+                cachedSecond = second;
+                cachedSecondText = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault())
+                        .format(SECOND_FORMAT);
+            }
+            int millis = Math.floorMod(timeMillis, 1000);
+            line.append(cachedSecondText).append('.');
+            if (millis < 100) {
+                line.append('0');
+            }
+            if (millis < 10) {
+                line.append('0');
+            }
+            line.append(millis).append(' ').append(level.name());
+            if (level.name().length() == 4) {
+                line.append(' ');
+            }
+            line.append(" [").append(thread == null || thread.isEmpty() ? "virtual" : thread).append("] ");
+        }
+
+        private void output(Level level) {
+            if (CONSOLE) {
+                if (level.compareTo(Level.WARN) >= 0) {
+                    System.err.print(line);
+                } else {
+                    System.out.print(line);
+                }
+            }
+            Writer out = openFile();
+            if (out == null) {
+                return;
+            }
+            int length = line.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            line.getChars(0, length, chars, 0);
+            try {
+                out.write(chars, 0, length);
+                fileBytes += length;
+                if (fileBytes >= MAX_FILE_BYTES) {
+                    roll();
+                }
+            } catch (IOException e) {
+                fileFailed("Could not write to the log file", e);
+            }
+        }
+
+        private Writer openFile() {
+            if (file == null && !fileFailed) {
+                try {
+                    Files.createDirectories(DIR);
+                    Path path = DIR.resolve(FILE_NAME);
+                    fileBytes = Files.exists(path) ? Files.size(path) : 0;
+                    file = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 16 * 1024);
+                } catch (IOException e) {
+                    fileFailed("Could not open the log file in " + DIR, e);
+                }
+            }
+            return file;
+        }
+
+        /**
+         * iq-test.log becomes iq-test.log.1, .1 becomes .2 and so on; the oldest is deleted
+         */
+        private void roll() throws IOException {
+            file.close();
+            file = null;
+            Files.deleteIfExists(DIR.resolve(FILE_NAME + "." + (MAX_FILES - 1)));
+            for (int i = MAX_FILES - 2; i >= 1; i--) {
+                Path older = DIR.resolve(FILE_NAME + "." + i);
+                if (Files.exists(older)) {
+                    Files.move(older, DIR.resolve(FILE_NAME + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (MAX_FILES > 1) {
+                Files.move(DIR.resolve(FILE_NAME), DIR.resolve(FILE_NAME + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(DIR.resolve(FILE_NAME));
+            }
+        }
+
+        private void flushFile() {
+            if (file != null) {
+                try {
+                    file.flush();
+                } catch (IOException e) {
+                    fileFailed("Could not write to the log file", e);
+                }
+            }
+        }
+
+        private void fileFailed(String message, IOException e) {
+            // Keep logging to the console only
+            fileFailed = true;
+            file = null;
+            System.err.println(message + ": " + e);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package org.example;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
 
 /**
  * LoginFrame class - Main login screen for the IQ Test application
@@ -13,11 +12,17 @@ public class LoginFrame extends JFrame {
     // Input fields for user credentials
     private JTextField usernameField;
     private JPasswordField passwordField;
+    private JButton loginButton;
+
+    // Background database calls, cancelled when the frame is disposed
+    private final UiTasks tasks = new UiTasks();
 
     /**
      * Constructor - Initializes and displays the login frame
      */
     public LoginFrame() {
+        TestEvents.FrameConstruction construction = new TestEvents.FrameConstruction();
+        construction.begin();
         // Basic frame setup
         setTitle("IQ Test - Login");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);  // Close application when window closes
@@ -92,7 +97,7 @@ public class LoginFrame extends JFrame {
         passwordField.setMaximumSize(new Dimension(350, 45));
 
         // Sign In button
-        JButton loginButton = new JButton("Sign In");
+        loginButton = new JButton("Sign In");
         styleButton(loginButton, new Color(59, 130, 246), new Color(37, 99, 235));  // Blue colors
         loginButton.setMaximumSize(new Dimension(350, 45));
         loginButton.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -142,6 +147,7 @@ public class LoginFrame extends JFrame {
 
 
         setVisible(true);  // Make frame visible
+        construction.finish("LoginFrame", 0);
     }
 
     /**
@@ -222,38 +228,43 @@ public class LoginFrame extends JFrame {
             return;
         }
 
-        try {
-            // Connect to database
-            Connection conn = DBConnection.getConnection();
-
-            // Prepare SQL query to check credentials
-            PreparedStatement ps = conn.prepareStatement("SELECT user_id FROM users WHERE username = ? AND password = ?");
-            ps.setString(1, username);
-            ps.setString(2, password);
-            ResultSet rs = ps.executeQuery();
-
-            // Check if user exists
-            if (rs.next()) {
-                // Login successful - Get user ID
-                int userId = rs.getInt("user_id");
-
-                // Close database resources
-                rs.close();
-                ps.close();
-                conn.close();
+        // Show progress while the credentials are checked off the EDT
+        loginButton.setEnabled(false);
+        loginButton.setText("Signing In...");
 
+        tasks.run(AsyncDataAccess.authenticate(username, password), userId -> {
+            if (userId != null) {
                 // Close login frame and open menu
                 dispose();
                 new MenuFrame(userId, username);
             } else {
                 // Login failed - Invalid credentials
+                resetLoginButton();
                 JOptionPane.showMessageDialog(this, "Invalid username or password", "Error", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (SQLException e) {
+        }, error -> {
             // Database error occurred
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Database error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+            Log.error("Could not sign in", error);
+            resetLoginButton();
+            JOptionPane.showMessageDialog(this, "Database error: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    /**
+     * Restores the Sign In button after a failed attempt
+     */
+    private void resetLoginButton() {
+        loginButton.setEnabled(true);
+        loginButton.setText("Sign In");
+    }
+
+    /**
+     * Cancels pending database calls before closing the frame
+     */
+    @Override
+    public void dispose() {
+        tasks.cancelAll();
+        super.dispose();
     }
 
     /**
@@ -1,12 +1,65 @@
 package org.example;
 
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
 //TIP To <b>Run</b> code, press <shortcut actionId="Run"/> or
 // click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
 
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // The schema must be current before anything queries it; -Diq.schema.migrate=false skips this.
+        // A failed migration stops startup rather than running against a half-migrated schema
+        if (Boolean.parseBoolean(System.getProperty("iq.schema.migrate", "true"))) {
+            try {
+                SchemaMigrator.migrate();
+            } catch (SQLException e) {
+                Log.error("Schema migration failed", e);
+                throw e;
+            }
+        }
+
+        // Write attempts left in spill files by a previous crash first, then start each service on
+        // its own, without delaying the login screen; one failing does not keep the others from starting
+        CompletableFuture<Void> recovered = startAfter(CompletableFuture.completedFuture(null),
+                "Attempt journal recovery", AttemptJournal::recoverSpilled);
+        startAfter(recovered, "User stats rollup", UserStatsRollup::start);
+        // NormingEngine refreshes from the RankingService counts, so it starts once those are loaded (or failed to)
+        CompletableFuture<Void> ranking = startAfter(recovered, "Ranking service", RankingService.getInstance()::start);
+        startAfter(ranking, "Norming engine", NormingEngine.getInstance()::start);
+        startAfter(recovered, "Item statistics", ItemStatistics.getInstance()::start);
+        startAfter(recovered, "Index usage check", SchemaMigrator::checkIndexUsage);
+
+        // "--server [port]" serves the test over HTTP instead of opening the Swing UI
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            new IQTestServer(port).start();
+            return;
+        }
+        EdtWatchdog.install();
         new LoginFrame();
 
     }
+
+    /**
+     * Runs a startup task once the previous one has finished, whether or not it succeeded
+     * @return Completes when the task has run; a failure is logged here
+     */
+    private static CompletableFuture<Void> startAfter(CompletableFuture<Void> previous, String name, StartupTask task) {
+        return previous.handle((ignored, error) -> null)
+                .thenCompose(ignored -> AsyncDataAccess.<Void>submit(() -> {
+                    task.run();
+                    return null;
+                }))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        Log.error("{} failed to start", name, error);
+                    }
+                });
+    }
+
+    private interface StartupTask {
+        void run() throws SQLException;
+    }
 }
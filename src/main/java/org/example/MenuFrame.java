@@ -13,6 +13,7 @@ public class MenuFrame extends JFrame {
     // User information
     private int userId;
     private String username;
+    private final UiTasks tasks = new UiTasks();
 
     /**
      * Constructor - Initializes the menu frame with user information
@@ -20,6 +21,8 @@ public class MenuFrame extends JFrame {
      * @param username The logged-in user's username
      */
     public MenuFrame(int userId, String username) {
+        TestEvents.FrameConstruction construction = new TestEvents.FrameConstruction();
+        construction.begin();
         this.userId = userId;
         this.username = username;
 
@@ -67,11 +70,20 @@ public class MenuFrame extends JFrame {
         subtitleLabel.setForeground(new Color(148, 163, 184));  // Gray color
         subtitleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
+        // Stats label - Aggregates from the user_stats rollup, filled in once loaded
+        JLabel statsLabel = new JLabel(" ", SwingConstants.CENTER);
+        statsLabel.setFont(new Font("Inter", Font.PLAIN, 14));
+        statsLabel.setForeground(new Color(203, 213, 225));  // Light gray color
+        statsLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        loadStats(statsLabel);
+
         // Add header elements to content panel
         contentPanel.add(welcomeLabel);
         contentPanel.add(Box.createRigidArea(new Dimension(0, 10)));  // 10px spacing
         contentPanel.add(subtitleLabel);
-        contentPanel.add(Box.createRigidArea(new Dimension(0, 50)));  // 50px spacing
+        contentPanel.add(Box.createRigidArea(new Dimension(0, 10)));  // 10px spacing
+        contentPanel.add(statsLabel);
+        contentPanel.add(Box.createRigidArea(new Dimension(0, 40)));  // 40px spacing
 
         // Start Test button - Opens the IQ test frame
         JButton startTestButton = createMenuButton("Start New Test", "Begin a fresh IQ test");
@@ -107,6 +119,26 @@ public class MenuFrame extends JFrame {
 
 
         setVisible(true);  // Make frame visible
+        construction.finish("MenuFrame", userId);
+    }
+
+    /**
+     * Loads the user's statistics in the background and shows them in the label
+     * @param statsLabel Label to fill
+     */
+    private void loadStats(JLabel statsLabel) {
+        tasks.run(AsyncDataAccess.loadUserStats(userId),
+                stats -> statsLabel.setText(stats == null ? "No completed tests yet" : stats.describe()),
+                error -> Log.warn("Could not load statistics of user {}", userId, error));
+    }
+
+    /**
+     * Cancels background loads when the frame closes
+     */
+    @Override
+    public void dispose() {
+        tasks.cancelAll();
+        super.dispose();
     }
 
     /**
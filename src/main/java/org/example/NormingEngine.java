@@ -0,0 +1,372 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NormingEngine class - Maps test scores to IQ (mean 100, SD 15) from the observed scores
+ * For every test length the score's mid-rank percentile among completed tests (from the
+ * incrementally maintained RankingService counts) goes through the inverse normal CDF.
+ * refresh() recomputes the tables every iq.norms.refreshMinutes minutes; a table that
+ * changed is stored in iq_norms, published, and the results of that length are re-scored
+ * in parallel chunks. Scoring one result is a single array lookup. Lengths with fewer than
+ * iq.norms.minSample completed tests use the old fixed percentage bands.
+ */
+public final class NormingEngine {
+    private static final double MEAN = 100;
+    private static final double SD = 15;
+    private static final int MIN_IQ = 40;
+    private static final int MAX_IQ = 160;
+    private static final int MIN_SAMPLE = Integer.getInteger("iq.norms.minSample", 100);
+    private static final long REFRESH_MINUTES = Long.getLong("iq.norms.refreshMinutes", 60);
+    private static final int RESCORE_THREADS = Integer.getInteger("iq.norms.rescoreThreads", 4);
+    private static final int RESCORE_CHUNK = Integer.getInteger("iq.norms.rescoreChunk", 10_000);
+
+    private static final NormingEngine INSTANCE = new NormingEngine();
+
+    // Published lookup tables by test length; replaced, never modified
+    private final Map<Integer, NormTable> tables = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    private NormingEngine() {
+    }
+
+    public static NormingEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads the published norms, refreshes them against the current distribution (blocking)
+     * and schedules the periodic refresh; RankingService must have been started
+     */
+    public void start() throws SQLException {
+        loadPublished();
+        refresh();
+        synchronized (this) {
+            if (scheduler != null || REFRESH_MINUTES <= 0) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "norms-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (SQLException | RuntimeException e) {
+                Log.error("Could not refresh the IQ norms", e);
+            }
+        }, REFRESH_MINUTES, REFRESH_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @return Estimated IQ for a score on a test with this many questions
+     */
+    public int iq(int score, int totalQuestions) {
+        NormTable table = tables.get(totalQuestions);
+        if (table == null) {
+            return fallbackIq(totalQuestions == 0 ? 0 : (score * 100.0) / totalQuestions);
+        }
+        return table.iqByScore[Math.max(0, Math.min(score, totalQuestions))];
+    }
+
+    /**
+     * @return Number of completed tests the norms for this length are based on, 0 if not normed yet
+     */
+    public long sampleSize(int totalQuestions) {
+        NormTable table = tables.get(totalQuestions);
+        return table == null ? 0 : table.sampleSize;
+    }
+
+    /**
+     * Recomputes the table of every test length from the current distribution and publishes
+     * and re-scores the ones that changed
+     * @return Number of test lengths whose norms changed
+     */
+    public synchronized int refresh() throws SQLException {
+        int changed = 0;
+        RankingService ranking = RankingService.getInstance();
+        for (int totalQuestions : ranking.testLengths()) {
+            long[] counts = ranking.scoreCounts(totalQuestions);
+            if (counts == null) {
+                continue;
+            }
+            NormTable fresh = NormTable.fromCounts(counts);
+            if (fresh.sampleSize < MIN_SAMPLE) {
+                continue;
+            }
+            NormTable current = tables.get(totalQuestions);
+            if (current != null && Arrays.equals(current.iqByScore, fresh.iqByScore)) {
+                continue;
+            }
+            publish(totalQuestions, fresh);
+            tables.put(totalQuestions, fresh);
+            int rescored = rescore(totalQuestions, fresh);
+            Log.info("Published IQ norms for {}-question tests from {} results and re-scored {} results",
+                    totalQuestions, fresh.sampleSize, rescored);
+            changed++;
+        }
+        return changed;
+    }
+
+    /**
+     * Writes iq_score for every completed result of one length under the given norms, splitting
+     * the result ID range into chunks that run on several connections at once
+     * @return Number of results updated
+     */
+    public int rescore(int totalQuestions, NormTable table) throws SQLException {
+        int[] range = resultIdRange(totalQuestions);
+        if (range == null) {
+            return 0;
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(RESCORE_THREADS, r -> {
+            Thread t = new Thread(r, "norms-rescore");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Integer>> chunks = new ArrayList<>();
+            for (long from = range[0]; from <= range[1]; from += RESCORE_CHUNK) {
+                int first = (int) from;
+                int last = (int) Math.min(from + RESCORE_CHUNK - 1, range[1]);
+                chunks.add(workers.submit(() -> rescoreChunk(totalQuestions, table, first, last)));
+            }
+            int updated = 0;
+            for (Future<Integer> chunk : chunks) {
+                updated += chunk.get();
+            }
+            return updated;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while re-scoring results", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Re-scoring results failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Stores the IQ of a result that was just completed, on the caller's transaction
+     */
+    void scoreCompletion(Connection conn, int resultId, int finalScore, int totalQuestions) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement("UPDATE results SET iq_score = ? WHERE result_id = ?");
+        ps.setInt(1, iq(finalScore, totalQuestions));
+        ps.setInt(2, resultId);
+        ps.executeUpdate();
+        ps.close();
+    }
+
+    private void loadPublished() throws SQLException {
+        Map<Integer, int[]> iqs = new HashMap<>();
+        Map<Integer, Long> samples = new HashMap<>();
+        try (Connection conn = DataAccess.connect();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT test_length, score, iq, sample_size FROM iq_norms")) {
+            while (rs.next()) {
+                int length = rs.getInt("test_length");
+                int score = rs.getInt("score");
+                if (score < 0 || score > length) {
+                    continue;
+                }
+                iqs.computeIfAbsent(length, l -> new int[l + 1])[score] = rs.getInt("iq");
+                samples.put(length, rs.getLong("sample_size"));
+            }
+        }
+        for (Map.Entry<Integer, int[]> entry : iqs.entrySet()) {
+            tables.put(entry.getKey(), new NormTable(entry.getValue(), samples.get(entry.getKey())));
+        }
+    }
+
+    private static void publish(int totalQuestions, NormTable table) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection conn = DataAccess.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement delete = conn.prepareStatement("DELETE FROM iq_norms WHERE test_length = ?");
+                delete.setInt(1, totalQuestions);
+                delete.executeUpdate();
+                delete.close();
+
+                PreparedStatement insert = conn.prepareStatement(
+                        "INSERT INTO iq_norms(test_length, score, iq, sample_size, computed_on) VALUES (?, ?, ?, ?, ?)");
+                for (int score = 0; score < table.iqByScore.length; score++) {
+                    insert.setInt(1, totalQuestions);
+                    insert.setInt(2, score);
+                    insert.setInt(3, table.iqByScore[score]);
+                    insert.setLong(4, table.sampleSize);
+                    insert.setTimestamp(5, now);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                insert.close();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static int[] resultIdRange(int totalQuestions) throws SQLException {
+        try (Connection conn = DataAccess.connect()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "SELECT MIN(result_id), MAX(result_id) FROM results " +
+                            "WHERE total_questions = ? AND completed_on IS NOT NULL AND ability IS NULL");
+            ps.setInt(1, totalQuestions);
+            ResultSet rs = ps.executeQuery();
+            int[] range = null;
+            if (rs.next()) {
+                int min = rs.getInt(1);
+                if (!rs.wasNull()) {
+                    range = new int[]{min, rs.getInt(2)};
+                }
+            }
+            rs.close();
+            ps.close();
+            return range;
+        }
+    }
+
+    /**
+     * Updates one result ID range with a single statement mapping each score to its IQ
+     */
+    private static int rescoreChunk(int totalQuestions, NormTable table, int firstId, int lastId) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE results SET iq_score = CASE score");
+        for (int score = 0; score < table.iqByScore.length; score++) {
+            sql.append(" WHEN ").append(score).append(" THEN ").append(table.iqByScore[score]);
+        }
+        sql.append(" ELSE iq_score END WHERE total_questions = ? AND completed_on IS NOT NULL AND ability IS NULL " +
+                "AND result_id BETWEEN ? AND ?");
+        try (Connection conn = DataAccess.connect()) {
+            PreparedStatement ps = conn.prepareStatement(sql.toString());
+            ps.setInt(1, totalQuestions);
+            ps.setInt(2, firstId);
+            ps.setInt(3, lastId);
+            int updated = ps.executeUpdate();
+            ps.close();
+            return updated;
+        }
+    }
+
+    /**
+     * @return IQ of an adaptive test's ability estimate, whose scale is the population's
+     *         standard normal (the prior of the estimate)
+     */
+    static int abilityIq(double theta) {
+        return (int) Math.max(MIN_IQ, Math.min(MAX_IQ, Math.round(MEAN + SD * theta)));
+    }
+
+    /**
+     * The fixed percentage bands used before there is enough data to norm a test length
+     */
+    static int fallbackIq(double percentage) {
+        if (percentage >= 95) return 145;  // Very Superior
+        if (percentage >= 90) return 135;  // Superior
+        if (percentage >= 80) return 125;  // High Average
+        if (percentage >= 70) return 115;  // Above Average
+        if (percentage >= 50) return 100;  // Average
+        if (percentage >= 40) return 90;   // Below Average
+        if (percentage >= 30) return 85;   // Low Average
+        return 75;                          // Borderline
+    }
+
+    /**
+     * Inverse of the standard normal CDF (Acklam's rational approximation, relative error below 1.2e-9)
+     */
+    static double inverseNormal(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        final double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * Score-to-IQ lookup table of one test length; immutable
+     */
+    public static final class NormTable {
+        final int[] iqByScore;
+        final long sampleSize;
+
+        NormTable(int[] iqByScore, long sampleSize) {
+            this.iqByScore = iqByScore;
+            this.sampleSize = sampleSize;
+        }
+
+        /**
+         * Builds the table from the number of completed tests per score
+         */
+        static NormTable fromCounts(long[] counts) {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            int[] iqs = new int[counts.length];
+            long below = 0;
+            for (int score = 0; score < counts.length; score++) {
+                // Mid-rank percentile, kept half a test away from 0 and 1 so the tails stay finite
+                double p = total == 0 ? 0.5 : (below + counts[score] / 2.0) / total;
+                double edge = total == 0 ? 0.5 : 0.5 / total;
+                p = Math.max(edge, Math.min(1 - edge, p));
+                long iq = Math.round(MEAN + SD * inverseNormal(p));
+                iqs[score] = (int) Math.max(MIN_IQ, Math.min(MAX_IQ, iq));
+                below += counts[score];
+            }
+            return new NormTable(iqs, total);
+        }
+
+        /**
+         * @return IQ for each score (index = score); a copy
+         */
+        public int[] getIqByScore() {
+            return iqByScore.clone();
+        }
+
+        public long getSampleSize() {
+            return sampleSize;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+/**
+ * Question class - Immutable snapshot of one row of the questions table
+ */
+public final class Question {
+    public static final String DEFAULT_CATEGORY = "general";
+    public static final int DEFAULT_DIFFICULTY = 3;
+
+    private final int id;
+    private final String text;
+    private final String[] options;
+    private final int correctOption;
+    private final String category;
+    private final int difficulty;
+
+    public Question(int id, String text, String optionA, String optionB, String optionC, String optionD, int correctOption) {
+        this(id, text, optionA, optionB, optionC, optionD, correctOption, DEFAULT_CATEGORY, DEFAULT_DIFFICULTY);
+    }
+
+    /**
+     * @param category Content area the question tests, e.g. "verbal"
+     * @param difficulty Difficulty band, 1 (easiest) to 5 (hardest)
+     */
+    public Question(int id, String text, String optionA, String optionB, String optionC, String optionD, int correctOption,
+                    String category, int difficulty) {
+        this.id = id;
+        this.text = text;
+        this.options = new String[]{optionA, optionB, optionC, optionD};
+        this.correctOption = correctOption;
+        this.category = category;
+        this.difficulty = difficulty;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @param index Zero-based option index (0 = A ... 3 = D)
+     */
+    public String getOption(int index) {
+        return options[index];
+    }
+
+    /**
+     * @return Correct option as a number: A=1, B=2, C=3, D=4
+     */
+    public int getCorrectOption() {
+        return correctOption;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+}
@@ -0,0 +1,199 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * QuestionBank class - Process-wide cache of the questions table
+ * Loaded in a single query and shared by every test session in the JVM, so moving
+ * to the next question and grading an answer never touch the database.
+ * Each snapshot also carries the TestAssembler index that tests are drawn from.
+ */
+public final class QuestionBank {
+    // Full reload after this long, even if the version check sees no change
+    private static final long TTL_MILLIS = Long.getLong("iq.questions.ttlMillis", 600_000);
+    // Minimum time between two cheap version checks
+    private static final long VERSION_CHECK_MILLIS = Long.getLong("iq.questions.versionCheckMillis", 30_000);
+
+    private static final QuestionBank INSTANCE = new QuestionBank();
+
+    private volatile Snapshot snapshot;
+
+    private QuestionBank() {
+    }
+
+    public static QuestionBank getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Makes sure the cache is loaded and current; called once when a test starts
+     */
+    public void preload() throws SQLException {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current != null && now - current.loadedAt < TTL_MILLIS) {
+            if (now - current.checkedAt < VERSION_CHECK_MILLIS) {
+                return;
+            }
+            if (current.version.equals(readVersion())) {
+                current.checkedAt = now;
+                return;
+            }
+        }
+        reload(current);
+    }
+
+    /**
+     * @param questionId Question to look up
+     * @return Cached question, or null if it does not exist
+     */
+    public Question get(int questionId) throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            preload();
+            current = snapshot;
+        }
+        return current.questions.get(questionId);
+    }
+
+    /**
+     * @return Index for drawing tests from the cached questions
+     */
+    public TestAssembler getAssembler() throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            preload();
+            current = snapshot;
+        }
+        return current.assembler;
+    }
+
+    /**
+     * @return IRT parameters of the cached questions, indexed for adaptive tests;
+     *         built on first use after each reload
+     */
+    public CatItemBank getItemBank() throws SQLException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            preload();
+            current = snapshot;
+        }
+        return current.itemBank();
+    }
+
+    /**
+     * Drops the cache so the next access reloads it, e.g. after editing questions
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private synchronized void reload(Snapshot seen) throws SQLException {
+        // Another session may have reloaded while this one waited for the lock
+        if (snapshot != seen && snapshot != null) {
+            return;
+        }
+
+        Map<Integer, Question> questions = new HashMap<>();
+        Map<Integer, double[]> irtParameters = new HashMap<>();
+        String version;
+        try (Connection conn = DataAccess.connect()) {
+            version = readVersion(conn);
+            PreparedStatement ps = conn.prepareStatement(
+                    "SELECT question_id, question_text, option_a, option_b, option_c, option_d, correct_option, category, difficulty, " +
+                            "irt_a, irt_b, irt_c FROM questions");
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int id = rs.getInt("question_id");
+                questions.put(id, new Question(id,
+                        rs.getString("question_text"),
+                        rs.getString("option_a"),
+                        rs.getString("option_b"),
+                        rs.getString("option_c"),
+                        rs.getString("option_d"),
+                        rs.getInt("correct_option"),
+                        rs.getString("category"),
+                        rs.getInt("difficulty")));
+                irtParameters.put(id, new double[]{rs.getDouble("irt_a"), rs.getDouble("irt_b"), rs.getDouble("irt_c")});
+            }
+            rs.close();
+            ps.close();
+        }
+        snapshot = new Snapshot(questions, irtParameters, version);
+    }
+
+    private String readVersion() throws SQLException {
+        try (Connection conn = DataAccess.connect()) {
+            return readVersion(conn);
+        }
+    }
+
+    /**
+     * Cheap fingerprint of the table; catches added and removed questions
+     */
+    private String readVersion(Connection conn) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*), COALESCE(MAX(question_id), 0) FROM questions");
+        ResultSet rs = ps.executeQuery();
+        String version = rs.next() ? rs.getLong(1) + ":" + rs.getLong(2) : "0:0";
+        rs.close();
+        ps.close();
+        return version;
+    }
+
+    /**
+     * Immutable view of the questions table at one point in time
+     */
+    private static final class Snapshot {
+        final Map<Integer, Question> questions;
+        final TestAssembler assembler;
+        // a, b and c of each question, turned into itemBank when an adaptive test first needs it
+        final Map<Integer, double[]> irtParameters;
+        final String version;
+        final long loadedAt = System.currentTimeMillis();
+        volatile long checkedAt = loadedAt;
+        private volatile CatItemBank itemBank;
+
+        Snapshot(Map<Integer, Question> questions, Map<Integer, double[]> irtParameters, String version) {
+            this.questions = questions;
+            this.assembler = new TestAssembler(questions.values());
+            this.irtParameters = irtParameters;
+            this.version = version;
+        }
+
+        CatItemBank itemBank() {
+            CatItemBank bank = itemBank;
+            if (bank == null) {
+                synchronized (this) {
+                    bank = itemBank;
+                    if (bank == null) {
+                        bank = buildItemBank();
+                        itemBank = bank;
+                    }
+                }
+            }
+            return bank;
+        }
+
+        private CatItemBank buildItemBank() {
+            int size = irtParameters.size();
+            int[] ids = new int[size];
+            double[] a = new double[size];
+            double[] b = new double[size];
+            double[] c = new double[size];
+            int item = 0;
+            for (Map.Entry<Integer, double[]> entry : irtParameters.entrySet()) {
+                ids[item] = entry.getKey();
+                a[item] = entry.getValue()[0];
+                b[item] = entry.getValue()[1];
+                c[item] = entry.getValue()[2];
+                item++;
+            }
+            return new CatItemBank(ids, a, b, c);
+        }
+    }
+}
@@ -0,0 +1,618 @@
+package org.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * QuestionBitmap class - Compressed set of question IDs in the style of a Roaring bitmap
+ * IDs are split by their high 16 bits into chunks; each chunk lives in one container: a
+ * sorted array of the low 16 bits while it holds at most 4096 IDs, a 65536-bit bitmap
+ * above that, or a list of runs when read back from bytes that stored it as runs. Set
+ * operations go container by container, so andNot costs about the size of the chunks
+ * involved rather than the size of the ID range. toBytes() writes every container in
+ * whichever of the three forms is smallest. Not thread-safe; share a set read-only.
+ */
+public final class QuestionBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final byte RUN = 2;
+
+    // Containers sorted by key (the high 16 bits of their IDs)
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public static QuestionBitmap of(int... ids) {
+        QuestionBitmap bitmap = new QuestionBitmap();
+        for (int id : ids) {
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param id Non-negative question ID
+     */
+    public void add(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative question ID " + id);
+        }
+        char key = (char) (id >>> 16);
+        int index = indexOf(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) id);
+        } else {
+            insert(-index - 1, key, new ArrayContainer().add((char) id));
+        }
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = indexOf((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return New set of the IDs in this set that are not in other
+     */
+    public QuestionBitmap andNot(QuestionBitmap other) {
+        QuestionBitmap result = new QuestionBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            char key = keys[i];
+            while (j < other.size && other.keys[j] < key) {
+                j++;
+            }
+            Container remaining = j < other.size && other.keys[j] == key
+                    ? containers[i].andNot(other.containers[j])
+                    : containers[i].copy();
+            if (remaining != null) {
+                result.insert(result.size, key, remaining);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param rank Zero-based position in ascending order, below cardinality()
+     * @return The rank-th smallest ID
+     */
+    public int select(int rank) {
+        int remaining = rank;
+        for (int i = 0; i < size; i++) {
+            int cardinality = containers[i].cardinality();
+            if (remaining < cardinality) {
+                return keys[i] << 16 | containers[i].select(remaining);
+            }
+            remaining -= cardinality;
+        }
+        throw new IndexOutOfBoundsException("Rank " + rank + " of a set of " + cardinality());
+    }
+
+    /**
+     * @return Every ID in ascending order
+     */
+    public int[] toArray() {
+        int[] ids = new int[cardinality()];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            for (char low : containers[i].values()) {
+                ids[offset++] = high | low;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Serializes the set, each container in its most compact form
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeChar(keys[i]);
+                writeContainer(out, containers[i]);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize question bitmap", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a set written by toBytes()
+     */
+    public static QuestionBitmap fromBytes(byte[] data) {
+        QuestionBitmap bitmap = new QuestionBitmap();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported question bitmap format " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                char key = in.readChar();
+                bitmap.insert(bitmap.size, key, readContainer(in));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt question bitmap", e);
+        }
+        return bitmap;
+    }
+
+    private static void writeContainer(DataOutputStream out, Container container) throws IOException {
+        int cardinality = container.cardinality();
+        int runs = container.runCount();
+        int arrayBytes = 2 * cardinality;
+        int runBytes = 4 * runs;
+        if (runBytes < arrayBytes && runBytes < 8 * BITMAP_WORDS) {
+            out.writeByte(RUN);
+            out.writeChar(runs - 1);
+            char[] values = container.values();
+            int start = 0;
+            for (int i = 1; i <= values.length; i++) {
+                if (i == values.length || values[i] != values[i - 1] + 1) {
+                    out.writeChar(values[start]);
+                    out.writeChar(i - start - 1);
+                    start = i;
+                }
+            }
+        } else if (cardinality <= ARRAY_MAX) {
+            out.writeByte(ARRAY);
+            out.writeChar(cardinality - 1);
+            for (char value : container.values()) {
+                out.writeChar(value);
+            }
+        } else {
+            out.writeByte(BITMAP);
+            for (long word : container.toBitmap().words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    private static Container readContainer(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case ARRAY: {
+                int cardinality = in.readChar() + 1;
+                char[] values = new char[cardinality];
+                for (int i = 0; i < cardinality; i++) {
+                    values[i] = in.readChar();
+                }
+                return new ArrayContainer(values, cardinality);
+            }
+            case BITMAP: {
+                long[] words = new long[BITMAP_WORDS];
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] = in.readLong();
+                }
+                return new BitmapContainer(words);
+            }
+            case RUN: {
+                int runs = in.readChar() + 1;
+                char[] starts = new char[runs];
+                char[] lengths = new char[runs];
+                for (int i = 0; i < runs; i++) {
+                    starts[i] = in.readChar();
+                    lengths[i] = in.readChar();
+                }
+                return new RunContainer(starts, lengths);
+            }
+            default:
+                throw new IOException("Unknown container type " + type);
+        }
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Sets or clears bits from..to (inclusive) of a 65536-bit bitmap
+     */
+    private static void setRange(long[] words, int from, int to, boolean value) {
+        int first = from >>> 6;
+        int last = to >>> 6;
+        for (int i = first; i <= last; i++) {
+            long mask = -1L;
+            if (i == first) {
+                mask &= -1L << from;
+            }
+            if (i == last) {
+                mask &= -1L >>> (63 - (to & 63));
+            }
+            words[i] = value ? words[i] | mask : words[i] & ~mask;
+        }
+    }
+
+    /**
+     * The low 16 bits of the IDs that share one key
+     * add() and andNot() may return a container of another type; andNot() returns null when empty
+     */
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        abstract Container add(char value);
+
+        abstract Container andNot(Container other);
+
+        abstract int select(int rank);
+
+        abstract int runCount();
+
+        abstract char[] values();
+
+        abstract Container copy();
+
+        /**
+         * Clears this container's values from a bitmap
+         */
+        abstract void clearFrom(long[] words);
+
+        BitmapContainer toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (char value : values()) {
+                words[value >>> 6] |= 1L << value;
+            }
+            return new BitmapContainer(words);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] kept = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer && ((ArrayContainer) other).cardinality * 16 < cardinality) {
+                // Few values to remove: find each one and copy the stretches between them
+                ArrayContainer array = (ArrayContainer) other;
+                int from = 0;
+                for (int j = 0; j < array.cardinality && from < cardinality; j++) {
+                    int index = Arrays.binarySearch(values, from, cardinality, array.values[j]);
+                    int end = index >= 0 ? index : -index - 1;
+                    System.arraycopy(values, from, kept, count, end - from);
+                    count += end - from;
+                    from = index >= 0 ? index + 1 : end;
+                }
+                System.arraycopy(values, from, kept, count, cardinality - from);
+                count += cardinality - from;
+            } else if (other instanceof ArrayContainer) {
+                // Both sorted: one merge pass instead of a binary search per value
+                ArrayContainer array = (ArrayContainer) other;
+                int j = 0;
+                for (int i = 0; i < cardinality; i++) {
+                    while (j < array.cardinality && array.values[j] < values[i]) {
+                        j++;
+                    }
+                    if (j == array.cardinality || array.values[j] != values[i]) {
+                        kept[count++] = values[i];
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (!other.contains(values[i])) {
+                        kept[count++] = values[i];
+                    }
+                }
+            }
+            return count == 0 ? null : new ArrayContainer(kept, count);
+        }
+
+        @Override
+        int select(int rank) {
+            return values[rank];
+        }
+
+        @Override
+        int runCount() {
+            int runs = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (i == 0 || values[i] != values[i - 1] + 1) {
+                    runs++;
+                }
+            }
+            return runs;
+        }
+
+        @Override
+        char[] values() {
+            return Arrays.copyOf(values, cardinality);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(values(), cardinality);
+        }
+
+        @Override
+        void clearFrom(long[] words) {
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] &= ~(1L << values[i]);
+            }
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words) {
+            this.words = words;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] remaining = words.clone();
+            other.clearFrom(remaining);
+            BitmapContainer result = new BitmapContainer(remaining);
+            if (result.cardinality == 0) {
+                return null;
+            }
+            return result.cardinality <= ARRAY_MAX ? new ArrayContainer(result.values(), result.cardinality) : result;
+        }
+
+        @Override
+        int select(int rank) {
+            int remaining = rank;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                int count = Long.bitCount(words[i]);
+                if (remaining < count) {
+                    long word = words[i];
+                    for (int j = 0; j < remaining; j++) {
+                        word &= word - 1;
+                    }
+                    return i << 6 | Long.numberOfTrailingZeros(word);
+                }
+                remaining -= count;
+            }
+            throw new IndexOutOfBoundsException("Rank " + rank);
+        }
+
+        @Override
+        int runCount() {
+            int runs = 0;
+            long previousHigh = 0;
+            for (long word : words) {
+                // A run starts at every set bit whose lower neighbour is clear
+                runs += Long.bitCount(word & ~(word << 1 | previousHigh));
+                previousHigh = word >>> 63;
+            }
+            return runs;
+        }
+
+        @Override
+        char[] values() {
+            char[] values = new char[cardinality];
+            int offset = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[offset++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return values;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone());
+        }
+
+        @Override
+        void clearFrom(long[] other) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                other[i] &= ~words[i];
+            }
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return this;
+        }
+    }
+
+    /**
+     * Runs of consecutive values; only produced by fromBytes(), and turned into an array or
+     * bitmap container on the first add()
+     */
+    private static final class RunContainer extends Container {
+        private final char[] starts;
+        // Run length minus one, so a run can cover all 65536 values
+        private final char[] lengths;
+        private final int cardinality;
+
+        RunContainer(char[] starts, char[] lengths) {
+            this.starts = starts;
+            this.lengths = lengths;
+            int total = 0;
+            for (char length : lengths) {
+                total += length + 1;
+            }
+            this.cardinality = total;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            int index = Arrays.binarySearch(starts, value);
+            if (index >= 0) {
+                return true;
+            }
+            int run = -index - 2;
+            return run >= 0 && value <= starts[run] + lengths[run];
+        }
+
+        @Override
+        Container add(char value) {
+            return expand().add(value);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            return expand().andNot(other);
+        }
+
+        @Override
+        int select(int rank) {
+            int remaining = rank;
+            for (int i = 0; i < starts.length; i++) {
+                if (remaining <= lengths[i]) {
+                    return starts[i] + remaining;
+                }
+                remaining -= lengths[i] + 1;
+            }
+            throw new IndexOutOfBoundsException("Rank " + rank);
+        }
+
+        @Override
+        int runCount() {
+            return starts.length;
+        }
+
+        @Override
+        char[] values() {
+            char[] values = new char[cardinality];
+            int offset = 0;
+            for (int i = 0; i < starts.length; i++) {
+                for (int value = starts[i]; value <= starts[i] + lengths[i]; value++) {
+                    values[offset++] = (char) value;
+                }
+            }
+            return values;
+        }
+
+        @Override
+        Container copy() {
+            // Never modified in place
+            return this;
+        }
+
+        @Override
+        void clearFrom(long[] words) {
+            for (int i = 0; i < starts.length; i++) {
+                setRange(words, starts[i], starts[i] + lengths[i], false);
+            }
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < starts.length; i++) {
+                setRange(words, starts[i], starts[i] + lengths[i], true);
+            }
+            return new BitmapContainer(words);
+        }
+
+        private Container expand() {
+            return cardinality <= ARRAY_MAX ? new ArrayContainer(values(), cardinality) : toBitmap();
+        }
+    }
+}
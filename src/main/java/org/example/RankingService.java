@@ -0,0 +1,265 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RankingService class - Score distribution of completed tests, kept in memory
+ * One distribution per test length (scores are only comparable between tests with the
+ * same number of questions); adaptive tests, scored by ability instead, are left out.
+ * Each holds a Fenwick tree of score counts, so adding a result and ranking a score both
+ * take O(log length), and a bounded leaderboard of the best result per user. Seeded from
+ * the results table by start(), fed every completed test of this process by AttemptJournal,
+ * and reloaded every iq.ranking.reloadMinutes minutes to pick up tests completed by other
+ * processes.
+ */
+public final class RankingService {
+    private static final int LEADERBOARD_SIZE = Integer.getInteger("iq.ranking.leaderboardSize", 10);
+    private static final long RELOAD_MINUTES = Long.getLong("iq.ranking.reloadMinutes", 60);
+
+    private static final RankingService INSTANCE = new RankingService();
+
+    private volatile Map<Integer, Distribution> distributions = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private ScheduledExecutorService scheduler;
+
+    private RankingService() {
+    }
+
+    public static RankingService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads the distribution from the database (blocking) and schedules the periodic reload
+     */
+    public void start() throws SQLException {
+        reload();
+        synchronized (this) {
+            if (scheduler != null || RELOAD_MINUTES <= 0) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ranking-reload");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (SQLException | RuntimeException e) {
+                Log.error("Could not reload the score distribution", e);
+            }
+        }, RELOAD_MINUTES, RELOAD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Rebuilds every distribution from the completed results in one pass, then swaps it in
+     * Completions recorded while this runs may be missing until the next reload
+     */
+    public void reload() throws SQLException {
+        long start = System.currentTimeMillis();
+        Map<Integer, Distribution> fresh = new ConcurrentHashMap<>();
+        int results = 0;
+        try (Connection conn = DataAccess.connect();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT r.result_id, r.user_id, u.username, r.score, r.total_questions " +
+                     "FROM results r LEFT JOIN users u ON u.user_id = r.user_id " +
+                     "WHERE r.completed_on IS NOT NULL AND r.ability IS NULL")) {
+            while (rs.next()) {
+                int totalQuestions = rs.getInt("total_questions");
+                fresh.computeIfAbsent(totalQuestions, Distribution::new).add(
+                        rs.getInt("result_id"), rs.getInt("user_id"), rs.getString("username"), rs.getInt("score"));
+                results++;
+            }
+        }
+        distributions = fresh;
+        loaded = true;
+        Log.info("Loaded the score distribution of {} results in {} ms", results, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Adds a test that was just completed; O(log length)
+     */
+    public void record(int resultId, int userId, String username, int score, int totalQuestions) {
+        distributions.computeIfAbsent(totalQuestions, Distribution::new).add(resultId, userId, username, score);
+    }
+
+    /**
+     * @return Where a score stands among completed tests of the same length,
+     *         or null before the distribution is loaded or if there are no such tests
+     */
+    public Rank rank(int score, int totalQuestions) {
+        Distribution distribution = distributions.get(totalQuestions);
+        if (!loaded || distribution == null) {
+            return null;
+        }
+        return distribution.rank(score);
+    }
+
+    /**
+     * @return Best result of each of the top users for one test length, best first
+     */
+    public List<LeaderboardEntry> leaderboard(int totalQuestions) {
+        Distribution distribution = distributions.get(totalQuestions);
+        return distribution == null ? List.of() : distribution.leaderboard();
+    }
+
+    /**
+     * @return Number of completed tests per score (index = score) for one test length,
+     *         or null if there are none or the distribution is not loaded yet
+     */
+    public long[] scoreCounts(int totalQuestions) {
+        Distribution distribution = distributions.get(totalQuestions);
+        if (!loaded || distribution == null) {
+            return null;
+        }
+        return distribution.counts();
+    }
+
+    /**
+     * @return Test lengths that have completed results
+     */
+    public List<Integer> testLengths() {
+        List<Integer> lengths = new ArrayList<>(distributions.keySet());
+        lengths.sort(null);
+        return lengths;
+    }
+
+    /**
+     * Position of one score in a distribution
+     */
+    public static final class Rank {
+        public final long below;
+        public final long equal;
+        public final long total;
+
+        Rank(long below, long equal, long total) {
+            this.below = below;
+            this.equal = equal;
+            this.total = total;
+        }
+
+        /**
+         * @return Percentile rank (0-100): share of tests scoring lower, counting ties as half
+         */
+        public double getPercentile() {
+            return total == 0 ? 0 : (below + equal / 2.0) * 100.0 / total;
+        }
+
+        /**
+         * @return Share of tests (0-100) that scored the same or higher, as in "top 5%"
+         */
+        public double getTopPercent() {
+            return total == 0 ? 100 : (total - below) * 100.0 / total;
+        }
+    }
+
+    /**
+     * One row of a leaderboard
+     */
+    public static final class LeaderboardEntry {
+        public final int resultId;
+        public final int userId;
+        public final String username;
+        public final int score;
+
+        LeaderboardEntry(int resultId, int userId, String username, int score) {
+            this.resultId = resultId;
+            this.userId = userId;
+            this.username = username;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Scores of the tests with one number of questions
+     */
+    private static final class Distribution {
+        // Higher score first; the earlier result wins a tie
+        private static final Comparator<LeaderboardEntry> BEST_FIRST =
+                Comparator.<LeaderboardEntry>comparingInt(entry -> -entry.score)
+                        .thenComparingInt(entry -> entry.resultId);
+
+        final int maxScore;
+        // Fenwick tree over score counts, index = score + 1, and the plain counts (guarded by "this")
+        final long[] tree;
+        final long[] counts;
+        long total;
+        final TreeSet<LeaderboardEntry> leaders = new TreeSet<>(BEST_FIRST);
+        final Map<Integer, LeaderboardEntry> leaderByUser = new HashMap<>();
+
+        Distribution(int totalQuestions) {
+            maxScore = totalQuestions;
+            tree = new long[totalQuestions + 2];
+            counts = new long[totalQuestions + 1];
+        }
+
+        synchronized void add(int resultId, int userId, String username, int score) {
+            int clamped = Math.max(0, Math.min(score, maxScore));
+            for (int i = clamped + 1; i < tree.length; i += i & -i) {
+                tree[i]++;
+            }
+            counts[clamped]++;
+            total++;
+            offerLeader(new LeaderboardEntry(resultId, userId, username, clamped));
+        }
+
+        synchronized Rank rank(int score) {
+            int clamped = Math.max(0, Math.min(score, maxScore));
+            long atMost = countAtMost(clamped);
+            long below = clamped == 0 ? 0 : countAtMost(clamped - 1);
+            return new Rank(below, atMost - below, total);
+        }
+
+        synchronized long[] counts() {
+            return counts.clone();
+        }
+
+        synchronized List<LeaderboardEntry> leaderboard() {
+            return new ArrayList<>(leaders);
+        }
+
+        private long countAtMost(int score) {
+            long count = 0;
+            for (int i = score + 1; i > 0; i -= i & -i) {
+                count += tree[i];
+            }
+            return count;
+        }
+
+        /**
+         * Keeps each user's best result among the top LEADERBOARD_SIZE; a user whose best was
+         * pushed out cannot come back with a lower score, so the board stays exact
+         */
+        private void offerLeader(LeaderboardEntry entry) {
+            LeaderboardEntry previous = leaderByUser.get(entry.userId);
+            if (previous != null) {
+                if (BEST_FIRST.compare(entry, previous) >= 0) {
+                    return;
+                }
+                leaders.remove(previous);
+            } else if (leaders.size() >= LEADERBOARD_SIZE && BEST_FIRST.compare(entry, leaders.last()) >= 0) {
+                return;
+            }
+            leaders.add(entry);
+            leaderByUser.put(entry.userId, entry);
+            if (leaders.size() > LEADERBOARD_SIZE) {
+                leaderByUser.remove(leaders.pollLast().userId);
+            }
+        }
+    }
+}
@@ -3,15 +3,18 @@ package org.example;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
 
 public class RegisterFrame extends JFrame {
     private JTextField usernameField;
     private JTextField emailField;
     private JPasswordField passwordField;
     private JPasswordField confirmPasswordField;
+    private JButton registerButton;
+    private final UiTasks tasks = new UiTasks();
 
     public RegisterFrame() {
+        TestEvents.FrameConstruction construction = new TestEvents.FrameConstruction();
+        construction.begin();
         setTitle("IQ Test - Register");
         setSize(450, 700);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -59,7 +62,7 @@ public class RegisterFrame extends JFrame {
         addFormField(formPanel, "Password", passwordField = createStyledPasswordField());
         addFormField(formPanel, "Confirm Password", confirmPasswordField = createStyledPasswordField());
 
-        JButton registerButton = new JButton("Create Account");
+        registerButton = new JButton("Create Account");
         styleButton(registerButton, new Color(59, 130, 246), new Color(37, 99, 235));
         registerButton.setMaximumSize(new Dimension(350, 45));
         registerButton.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -95,6 +98,7 @@ public class RegisterFrame extends JFrame {
         mainPanel.add(formPanel);
         add(mainPanel);
         setVisible(true);
+        construction.finish("RegisterFrame", 0);
     }
 
     public static void main(String[] args) {
@@ -177,37 +181,33 @@ public class RegisterFrame extends JFrame {
             return;
         }
 
-        try {
-            Connection conn = DBConnection.getConnection();
+        registerButton.setEnabled(false);
+        registerButton.setText("Creating Account...");
 
-            // Check if username exists
-            PreparedStatement checkPs = conn.prepareStatement("SELECT user_id FROM users WHERE username = ?");
-            checkPs.setString(1, username);
-            ResultSet rs = checkPs.executeQuery();
-            if (rs.next()) {
+        tasks.run(AsyncDataAccess.register(username, email, password), created -> {
+            if (!created) {
+                resetRegisterButton();
                 JOptionPane.showMessageDialog(this, "Username already exists", "Error", JOptionPane.ERROR_MESSAGE);
-                rs.close();
-                checkPs.close();
-                conn.close();
                 return;
             }
-            rs.close();
-            checkPs.close();
-
-            PreparedStatement ps = conn.prepareStatement("INSERT INTO users(username, email, password) VALUES (?, ?, ?)");
-            ps.setString(1, username);
-            ps.setString(2, email);
-            ps.setString(3, password);
-            ps.executeUpdate();
-            ps.close();
-            conn.close();
-
             JOptionPane.showMessageDialog(this, "Registration successful! Please login.", "Success", JOptionPane.INFORMATION_MESSAGE);
             dispose();
             new LoginFrame();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Registration failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }, error -> {
+            Log.error("Could not register a new user", error);
+            resetRegisterButton();
+            JOptionPane.showMessageDialog(this, "Registration failed: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void resetRegisterButton() {
+        registerButton.setEnabled(true);
+        registerButton.setText("Create Account");
+    }
+
+    @Override
+    public void dispose() {
+        tasks.cancelAll();
+        super.dispose();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResponseTimes class - Response-time histograms per user and per question
+ * TestSession measures each response on its monotonic clock from present() to the answer,
+ * and attempts.response_ms keeps it. Each user's row in user_response_times holds a
+ * LatencyHistogram of their answers in completed tests, updated by recordCompletion()
+ * inside the transaction that stores the score; a user without a row yet gets one built
+ * from attempts. The histogram of each question lives in item_stats and is added to by
+ * ItemStatistics. Timeouts are left out of both: they only say the limit ran out, and
+ * item_stats counts them separately. Percentiles come from the stored histograms, so they
+ * cost one primary key lookup however many attempts there are.
+ */
+public final class ResponseTimes {
+    // 16 sub-buckets per power of two: about 6% precision, a few hundred bytes stored
+    static final int SUB_BUCKET_BITS = 5;
+    static final long MAX_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final String UPSERT =
+            "INSERT INTO user_response_times(user_id, response_times, responses, response_median_ms, response_p90_ms, updated_on) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE response_times = VALUES(response_times), responses = VALUES(responses), " +
+                    "response_median_ms = VALUES(response_median_ms), response_p90_ms = VALUES(response_p90_ms), " +
+                    "updated_on = VALUES(updated_on)";
+
+    private ResponseTimes() {
+    }
+
+    /**
+     * @return Empty histogram of response times in milliseconds, in the shape every stored one has
+     */
+    public static LatencyHistogram newHistogram() {
+        return new LatencyHistogram(SUB_BUCKET_BITS, MAX_MILLIS);
+    }
+
+    /**
+     * @return Whether an attempt's response time belongs in the histograms
+     */
+    static boolean counts(String chosenOption, int responseMillis) {
+        return responseMillis >= 0 && !TestSession.TIMEOUT_OPTION.equals(chosenOption);
+    }
+
+    /**
+     * @return Response times of the user's answers in completed tests (empty for a new user)
+     */
+    public static LatencyHistogram forUser(int userId) throws SQLException {
+        try (Connection conn = DataAccess.connect()) {
+            LatencyHistogram histogram = read(conn, userId, false);
+            return histogram != null ? histogram : fromAttempts(conn, userId);
+        }
+    }
+
+    /**
+     * @return Response times of the question up to the last ItemStatistics refresh (empty if none yet)
+     */
+    public static LatencyHistogram forQuestion(int questionId) throws SQLException {
+        try (Connection conn = DataAccess.connect()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT response_times FROM item_stats WHERE question_id = ?");
+            ps.setInt(1, questionId);
+            ResultSet rs = ps.executeQuery();
+            byte[] stored = rs.next() ? rs.getBytes(1) : null;
+            rs.close();
+            ps.close();
+            return stored != null ? LatencyHistogram.fromBytes(stored) : newHistogram();
+        }
+    }
+
+    /**
+     * Adds the answers of a test that was just completed to its user's row, on the caller's
+     * connection and transaction; the row is locked so concurrent completions do not lose updates
+     */
+    static void recordCompletion(Connection conn, int userId, int resultId, Timestamp completedOn) throws SQLException {
+        LatencyHistogram histogram = read(conn, userId, true);
+        if (histogram == null) {
+            // Already includes this result, whose completed_on is set in this transaction
+            histogram = fromAttempts(conn, userId);
+        } else {
+            PreparedStatement ps = conn.prepareStatement("SELECT chosen_option, response_ms FROM attempts " +
+                    "WHERE result_id = ? AND response_ms IS NOT NULL");
+            ps.setInt(1, resultId);
+            addAll(histogram, ps.executeQuery());
+            ps.close();
+        }
+        PreparedStatement ps = conn.prepareStatement(UPSERT);
+        ps.setInt(1, userId);
+        ps.setBytes(2, histogram.toBytes());
+        ps.setLong(3, histogram.getCount());
+        setPercentile(ps, 4, histogram, 50);
+        setPercentile(ps, 5, histogram, 90);
+        ps.setTimestamp(6, completedOn);
+        ps.executeUpdate();
+        ps.close();
+    }
+
+    /**
+     * Binds a percentile in milliseconds, or NULL for an empty histogram
+     */
+    static void setPercentile(PreparedStatement ps, int index, LatencyHistogram histogram, double percentile) throws SQLException {
+        if (histogram.getCount() == 0) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, (int) histogram.valueAtPercentile(percentile));
+        }
+    }
+
+    private static LatencyHistogram read(Connection conn, int userId, boolean forUpdate) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement("SELECT response_times FROM user_response_times WHERE user_id = ?"
+                + (forUpdate ? " FOR UPDATE" : ""));
+        ps.setInt(1, userId);
+        ResultSet rs = ps.executeQuery();
+        LatencyHistogram histogram = rs.next() ? LatencyHistogram.fromBytes(rs.getBytes(1)) : null;
+        rs.close();
+        ps.close();
+        return histogram;
+    }
+
+    private static LatencyHistogram fromAttempts(Connection conn, int userId) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement("SELECT a.chosen_option, a.response_ms FROM attempts a " +
+                "JOIN results r ON r.result_id = a.result_id " +
+                "WHERE r.user_id = ? AND r.completed_on IS NOT NULL AND a.response_ms IS NOT NULL");
+        ps.setInt(1, userId);
+        LatencyHistogram histogram = newHistogram();
+        addAll(histogram, ps.executeQuery());
+        ps.close();
+        return histogram;
+    }
+
+    private static void addAll(LatencyHistogram histogram, ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            String chosenOption = rs.getString(1);
+            int responseMillis = rs.getInt(2);
+            if (counts(chosenOption, responseMillis)) {
+                histogram.record(responseMillis);
+            }
+        }
+        rs.close();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ResultDetailCache class - Process-wide LRU cache of completed results
+ * A completed result never changes, so reopening it from the history costs no query.
+ * Results still in progress are loaded every time and never cached.
+ */
+public final class ResultDetailCache {
+    private static final int CAPACITY = Integer.getInteger("iq.results.cacheSize", 64);
+
+    private static final ResultDetailCache INSTANCE = new ResultDetailCache();
+
+    // Least recently used first (guarded by "this")
+    private final Map<Integer, DataAccess.ResultDetail> details = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, DataAccess.ResultDetail> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    private ResultDetailCache() {
+    }
+
+    public static ResultDetailCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Cached detail, or null if the result has to be loaded
+     */
+    public synchronized DataAccess.ResultDetail getIfCached(int resultId) {
+        return details.get(resultId);
+    }
+
+    /**
+     * Returns the cached detail or loads it (blocking), caching it if the result is complete
+     * @return The result, or null if it does not exist
+     */
+    public DataAccess.ResultDetail get(int resultId) throws SQLException {
+        DataAccess.ResultDetail detail = getIfCached(resultId);
+        if (detail != null) {
+            return detail;
+        }
+        // Loaded outside the lock; two threads racing on the same result both query, which is harmless
+        detail = DataAccess.loadResultDetail(resultId);
+        if (detail != null && detail.isComplete()) {
+            synchronized (this) {
+                details.put(resultId, detail);
+            }
+        }
+        return detail;
+    }
+
+    /**
+     * Drops every cached result, e.g. after correcting the answer key of a question
+     */
+    public synchronized void invalidate() {
+        details.clear();
+    }
+}
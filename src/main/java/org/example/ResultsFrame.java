@@ -3,13 +3,15 @@ package org.example;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
-import java.sql.*;
 
 public class ResultsFrame extends JFrame {
     private int userId;
     private int resultId;
+    private final UiTasks tasks = new UiTasks();
 
     public ResultsFrame(int userId, int resultId) {
+        TestEvents.FrameConstruction construction = new TestEvents.FrameConstruction();
+        construction.begin();
         this.userId = userId;
         this.resultId = resultId;
 
@@ -59,18 +61,14 @@ public class ResultsFrame extends JFrame {
         JPanel tablePanel = new JPanel(new BorderLayout());
         tablePanel.setOpaque(false);
 
-        String[] columns = {"Question", "Your Answer", "Correct Answer", "Result"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        ResultsTableModel model = new ResultsTableModel();
 
         JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
         styleTable(table);
 
-        loadResults(model);
+        // Both panels show placeholders until the result arrives
+        loadDetail(statsPanel, iqPanel, model);
 
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setOpaque(false);
@@ -97,6 +95,7 @@ public class ResultsFrame extends JFrame {
 
         add(mainPanel);
         setVisible(true);
+        construction.finish("ResultsFrame", userId);
     }
 
     public static void main(String[] args) {
@@ -108,32 +107,26 @@ public class ResultsFrame extends JFrame {
         panel.setOpaque(false);
         panel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
 
-        try {
-            Connection conn = DBConnection.getConnection();
-            PreparedStatement ps = conn.prepareStatement("SELECT score, total_questions, date_taken FROM results WHERE result_id = ?");
-            ps.setInt(1, resultId);
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                int score = rs.getInt("score");
-                int total = rs.getInt("total_questions");
-                double percentage = (score * 100.0) / total;
-
-                panel.add(createStatCard("Score", score + "/" + total, new Color(59, 130, 246)));
-                panel.add(createStatCard("Percentage", String.format("%.1f%%", percentage), new Color(34, 197, 94)));
-                panel.add(createStatCard("Incorrect", (total - score) + "", new Color(239, 68, 68)));
-            }
-
-            rs.close();
-            ps.close();
-            conn.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        panel.add(createStatCard("Score", "...", new Color(59, 130, 246)));
+        panel.add(createStatCard("Percentage", "...", new Color(34, 197, 94)));
+        panel.add(createStatCard("Incorrect", "...", new Color(239, 68, 68)));
 
         return panel;
     }
 
+    private void fillStatsPanel(JPanel panel, DataAccess.ResultSummary summary) {
+        int score = summary.score;
+        int total = summary.totalQuestions;
+        double percentage = summary.getPercentage();
+
+        panel.removeAll();
+        panel.add(createStatCard("Score", score + "/" + total, new Color(59, 130, 246)));
+        panel.add(createStatCard("Percentage", String.format("%.1f%%", percentage), new Color(34, 197, 94)));
+        panel.add(createStatCard("Incorrect", (total - score) + "", new Color(239, 68, 68)));
+        panel.revalidate();
+        panel.repaint();
+    }
+
     private JPanel createIQAssessmentPanel() {
         JPanel panel = new JPanel() {
             @Override
@@ -158,85 +151,88 @@ public class ResultsFrame extends JFrame {
         panel.setOpaque(false);
         panel.setBorder(BorderFactory.createEmptyBorder(18, 30, 18, 30));
 
-        try {
-            Connection conn = DBConnection.getConnection();
-            PreparedStatement ps = conn.prepareStatement("SELECT score, total_questions FROM results WHERE result_id = ?");
-            ps.setInt(1, resultId);
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                int score = rs.getInt("score");
-                int total = rs.getInt("total_questions");
-                double percentage = (score * 100.0) / total;
-
-                // Calculate estimated IQ score (standard IQ scale: mean=100, SD=15)
-                int estimatedIQ = calculateIQ(percentage);
-                String rating = getIQRating(estimatedIQ);
-                Color ratingColor = getIQColor(estimatedIQ);
-
-                // Left side - IQ Score
-                JPanel leftPanel = new JPanel();
-                leftPanel.setLayout(new BoxLayout(leftPanel, BoxLayout.Y_AXIS));
-                leftPanel.setOpaque(false);
-
-                JLabel iqLabel = new JLabel("Estimated IQ");
-                iqLabel.setFont(new Font("Inter", Font.PLAIN, 12));
-                iqLabel.setForeground(new Color(148, 163, 184));
-                iqLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-
-                JLabel iqScoreLabel = new JLabel(String.valueOf(estimatedIQ));
-                iqScoreLabel.setFont(new Font("Inter", Font.BOLD, 38));
-                iqScoreLabel.setForeground(ratingColor);
-                iqScoreLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-
-                leftPanel.add(iqLabel);
-                leftPanel.add(Box.createRigidArea(new Dimension(0, 3)));
-                leftPanel.add(iqScoreLabel);
-
-                // Right side - Rating and Description
-                JPanel rightPanel = new JPanel();
-                rightPanel.setLayout(new BoxLayout(rightPanel, BoxLayout.Y_AXIS));
-                rightPanel.setOpaque(false);
-
-                JLabel ratingLabel = new JLabel(rating);
-                ratingLabel.setFont(new Font("Inter", Font.BOLD, 20));
-                ratingLabel.setForeground(new Color(248, 250, 252));
-                ratingLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-
-                JLabel descLabel = new JLabel("<html>" + getIQDescription(estimatedIQ) + "</html>");
-                descLabel.setFont(new Font("Inter", Font.PLAIN, 12));
-                descLabel.setForeground(new Color(148, 163, 184));
-                descLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-
-                rightPanel.add(ratingLabel);
-                rightPanel.add(Box.createRigidArea(new Dimension(0, 5)));
-                rightPanel.add(descLabel);
-
-                panel.add(leftPanel, BorderLayout.WEST);
-                panel.add(rightPanel, BorderLayout.CENTER);
-            }
-
-            rs.close();
-            ps.close();
-            conn.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        JLabel loadingLabel = new JLabel("Loading assessment...");
+        loadingLabel.setFont(new Font("Inter", Font.PLAIN, 14));
+        loadingLabel.setForeground(new Color(148, 163, 184));
+        panel.add(loadingLabel, BorderLayout.CENTER);
 
         return panel;
     }
 
-    private int calculateIQ(double percentage) {
-        // Map percentage to IQ score (standard scale)
-        // This is a simplified calculation
-        if (percentage >= 95) return 145;  // Very Superior
-        if (percentage >= 90) return 135;  // Superior
-        if (percentage >= 80) return 125;  // High Average
-        if (percentage >= 70) return 115;  // Above Average
-        if (percentage >= 50) return 100;  // Average
-        if (percentage >= 40) return 90;   // Below Average
-        if (percentage >= 30) return 85;   // Low Average
-        return 75;                          // Borderline
+    private void fillIQAssessmentPanel(JPanel panel, DataAccess.ResultSummary summary) {
+        panel.removeAll();
+        double percentage = summary.getPercentage();
+
+        // Estimated IQ (mean=100, SD=15): normed on the completed tests of the same length,
+        // or from the ability estimate of an adaptive test
+        int estimatedIQ = summary.getIq();
+        String rating = getIQRating(estimatedIQ);
+        Color ratingColor = getIQColor(estimatedIQ);
+
+        // Left side - IQ Score
+        JPanel leftPanel = new JPanel();
+        leftPanel.setLayout(new BoxLayout(leftPanel, BoxLayout.Y_AXIS));
+        leftPanel.setOpaque(false);
+
+        JLabel iqLabel = new JLabel("Estimated IQ");
+        iqLabel.setFont(new Font("Inter", Font.PLAIN, 12));
+        iqLabel.setForeground(new Color(148, 163, 184));
+        iqLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel iqScoreLabel = new JLabel(String.valueOf(estimatedIQ));
+        iqScoreLabel.setFont(new Font("Inter", Font.BOLD, 38));
+        iqScoreLabel.setForeground(ratingColor);
+        iqScoreLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        leftPanel.add(iqLabel);
+        leftPanel.add(Box.createRigidArea(new Dimension(0, 3)));
+        leftPanel.add(iqScoreLabel);
+
+        // Right side - Rating and Description
+        JPanel rightPanel = new JPanel();
+        rightPanel.setLayout(new BoxLayout(rightPanel, BoxLayout.Y_AXIS));
+        rightPanel.setOpaque(false);
+
+        JLabel ratingLabel = new JLabel(rating);
+        ratingLabel.setFont(new Font("Inter", Font.BOLD, 20));
+        ratingLabel.setForeground(new Color(248, 250, 252));
+        ratingLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel descLabel = new JLabel("<html>" + getIQDescription(estimatedIQ) + "</html>");
+        descLabel.setFont(new Font("Inter", Font.PLAIN, 12));
+        descLabel.setForeground(new Color(148, 163, 184));
+        descLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        rightPanel.add(ratingLabel);
+        rightPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        rightPanel.add(descLabel);
+
+        // Real standing among completed tests of the same length, from the in-memory distribution
+        RankingService.Rank rank = summary.isAdaptive() ? null
+                : RankingService.getInstance().rank(summary.score, summary.totalQuestions);
+        if (summary.isAdaptive()) {
+            JLabel precisionLabel = new JLabel(String.format("Adaptive test  ·  IQ %d ± %.0f after %d questions",
+                    estimatedIQ, 15 * summary.abilityError, summary.totalQuestions));
+            precisionLabel.setFont(new Font("Inter", Font.BOLD, 12));
+            precisionLabel.setForeground(new Color(203, 213, 225));
+            precisionLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            rightPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+            rightPanel.add(precisionLabel);
+        } else if (rank != null) {
+            JLabel rankLabel = new JLabel(String.format("Top %.1f%%  ·  scored higher than %.0f%% of %d completed tests",
+                    rank.getTopPercent(), rank.getPercentile(), rank.total));
+            rankLabel.setFont(new Font("Inter", Font.BOLD, 12));
+            rankLabel.setForeground(new Color(203, 213, 225));
+            rankLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            rightPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+            rightPanel.add(rankLabel);
+        }
+
+        panel.add(leftPanel, BorderLayout.WEST);
+        panel.add(rightPanel, BorderLayout.CENTER);
+
+        panel.revalidate();
+        panel.repaint();
     }
 
     private String getIQRating(int iq) {
@@ -260,8 +256,8 @@ public class ResultsFrame extends JFrame {
     }
 
     private String getIQDescription(int iq) {
-        if (iq >= 140) return "Exceptional intelligence! You're in the top 0.1% of the population.";
-        if (iq >= 130) return "Outstanding performance! You're in the top 2% of the population.";
+        if (iq >= 140) return "Exceptional intelligence! An outstanding result.";
+        if (iq >= 130) return "Outstanding performance! Well above average.";
         if (iq >= 120) return "Excellent result! Above average intelligence.";
         if (iq >= 110) return "Great job! Higher than average cognitive abilities.";
         if (iq >= 90) return "Good performance. You fall within the normal range.";
@@ -335,15 +331,16 @@ public class ResultsFrame extends JFrame {
                     setForeground(new Color(203, 213, 225));
                 }
 
-                // Color code the result column
-                if (column == 3 && value != null) {
-                    if (value.toString().equals("✓")) {
-                        setForeground(new Color(34, 197, 94));
-                        setFont(new Font("Inter", Font.BOLD, 15));
-                    } else if (value.toString().equals("✗")) {
-                        setForeground(new Color(239, 68, 68));
-                        setFont(new Font("Inter", Font.BOLD, 15));
-                    }
+                // The model holds raw values; they are only turned into text for visible cells
+                int modelColumn = table.convertColumnIndexToModel(column);
+                if (modelColumn == ResultsTableModel.QUESTION_COLUMN) {
+                    setText("Q" + value);
+                } else if (modelColumn == ResultsTableModel.RESULT_COLUMN && value instanceof Boolean) {
+                    // Color code the result column
+                    boolean correct = (Boolean) value;
+                    setText(correct ? "✓" : "✗");
+                    setForeground(correct ? new Color(34, 197, 94) : new Color(239, 68, 68));
+                    setFont(new Font("Inter", Font.BOLD, 15));
                 }
 
                 return c;
@@ -361,39 +358,37 @@ public class ResultsFrame extends JFrame {
         table.getColumnModel().getColumn(3).setPreferredWidth(90);
     }
 
-    private void loadResults(DefaultTableModel model) {
-        try {
-            Connection conn = DBConnection.getConnection();
-            PreparedStatement ps = conn.prepareStatement(
-                    "SELECT a.question_id, a.chosen_option, a.is_correct, q.question_text, q.correct_option " +
-                            "FROM attempts a JOIN questions q ON a.question_id = q.question_id " +
-                            "WHERE a.result_id = ? ORDER BY a.question_id"
-            );
-            ps.setInt(1, resultId);
-            ResultSet rs = ps.executeQuery();
-
-            int qNum = 1;
-            while (rs.next()) {
-                String chosen = rs.getString("chosen_option");
-                int correct = rs.getInt("correct_option");
-                boolean isCorrect = rs.getBoolean("is_correct");
-
-                model.addRow(new Object[]{
-                        "Q" + qNum++,
-                        chosen,
-                        correct,
-                        isCorrect ? "✓" : "✗"
-                });
+    private void loadDetail(JPanel statsPanel, JPanel iqPanel, ResultsTableModel model) {
+        // One query for the score and the answers, or none if this result was opened before
+        tasks.run(AsyncDataAccess.loadResultDetail(resultId), detail -> {
+            if (detail == null) {
+                return;
             }
+            TestEvents.ResultsRender render = new TestEvents.ResultsRender();
+            render.begin();
+            fillStatsPanel(statsPanel, detail.summary);
+            fillIQAssessmentPanel(iqPanel, detail.summary);
+            model.setRows(detail.attempts);
+            commitRender(render, "detail", detail.attempts.size());
+        }, error -> Log.error("Could not load result {}", resultId, error));
+    }
 
-            rs.close();
-            ps.close();
-            conn.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    private void commitRender(TestEvents.ResultsRender render, String part, int rows) {
+        if (render.shouldCommit()) {
+            render.userId = userId;
+            render.resultId = resultId;
+            render.part = part;
+            render.rows = rows;
+            render.commit();
         }
     }
 
+    @Override
+    public void dispose() {
+        tasks.cancelAll();
+        super.dispose();
+    }
+
     private void styleButton(JButton button, Color normalColor, Color hoverColor) {
         button.setFont(new Font("Inter", Font.BOLD, 15));
         button.setForeground(new Color(248, 250, 252));
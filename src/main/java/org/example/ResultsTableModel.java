@@ -0,0 +1,111 @@
+package org.example;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultsTableModel class - Answers of one result, stored column-wise in primitive arrays
+ * Cells hold raw values (question number, answer, correct option, correct flag);
+ * the renderers of ResultsFrame turn them into text.
+ */
+class ResultsTableModel extends AbstractTableModel {
+    static final int QUESTION_COLUMN = 0;
+    static final int ANSWER_COLUMN = 1;
+    static final int CORRECT_OPTION_COLUMN = 2;
+    static final int RESULT_COLUMN = 3;
+
+    private static final String[] COLUMNS = {"Question", "Your Answer", "Correct Answer", "Result"};
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, String.class, Integer.class, Boolean.class};
+    private static final String[] OPTION_LETTERS = {"A", "B", "C", "D"};
+    private static final byte TIMED_OUT = -1;
+    private static final byte OTHER = 0;
+
+    private int rowCount;
+    private int[] questionIds = new int[0];
+    // 1-4 for A-D, TIMED_OUT, or OTHER for anything else (kept in otherAnswers)
+    private byte[] answers = new byte[0];
+    private byte[] correctOptions = new byte[0];
+    private boolean[] correct = new boolean[0];
+    private final Map<Integer, String> otherAnswers = new HashMap<>();
+
+    /**
+     * Replaces the rows with the answers of a result, in question order
+     */
+    void setRows(List<DataAccess.AttemptRow> rows) {
+        rowCount = rows.size();
+        questionIds = new int[rowCount];
+        answers = new byte[rowCount];
+        correctOptions = new byte[rowCount];
+        correct = new boolean[rowCount];
+        otherAnswers.clear();
+        for (int i = 0; i < rowCount; i++) {
+            DataAccess.AttemptRow row = rows.get(i);
+            questionIds[i] = row.questionId;
+            answers[i] = encodeAnswer(i, row.chosenOption);
+            correctOptions[i] = (byte) row.correctOption;
+            correct[i] = row.correct;
+        }
+        fireTableDataChanged();
+    }
+
+    int questionIdAt(int row) {
+        return questionIds[row];
+    }
+
+    boolean isCorrect(int row) {
+        return correct[row];
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case QUESTION_COLUMN: return row + 1;
+            case ANSWER_COLUMN: return decodeAnswer(row);
+            case CORRECT_OPTION_COLUMN: return (int) correctOptions[row];
+            case RESULT_COLUMN: return correct[row];
+            default: throw new IndexOutOfBoundsException("No column " + column);
+        }
+    }
+
+    private byte encodeAnswer(int row, String chosenOption) {
+        if (TestSession.TIMEOUT_OPTION.equals(chosenOption)) {
+            return TIMED_OUT;
+        }
+        int number = chosenOption == null ? 0 : TestSession.optionNumber(chosenOption);
+        if (number == 0) {
+            otherAnswers.put(row, chosenOption);
+            return OTHER;
+        }
+        return (byte) number;
+    }
+
+    private String decodeAnswer(int row) {
+        byte code = answers[row];
+        if (code == TIMED_OUT) {
+            return TestSession.TIMEOUT_OPTION;
+        }
+        return code == OTHER ? otherAnswers.get(row) : OPTION_LETTERS[code - 1];
+    }
+}
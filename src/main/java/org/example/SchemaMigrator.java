@@ -0,0 +1,348 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SchemaMigrator class - Creates and upgrades the database schema on startup
+ * Migrations are the SQL files listed in db/migration/migrations.txt, named V&lt;n&gt;__description.sql.
+ * Each one runs once; its SHA-256 (ignoring comments and indentation) is stored in
+ * schema_version, and startup fails if a file that was already applied has since been
+ * edited. After migrating, checkIndexUsage() asks the database to EXPLAIN the hot queries
+ * and warns when one no longer uses its index.
+ */
+public final class SchemaMigrator {
+    private static final String MIGRATION_DIR = "db/migration/";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    // Plans on tiny tables are meaningless, the optimizer rightly prefers a scan there
+    private static final long EXPLAIN_MIN_ROWS = Long.getLong("iq.schema.explainMinRows", 1_000);
+
+    // Words that can follow a table name where an alias would otherwise be
+    private static final List<String> SQL_KEYWORDS = List.of("WHERE", "JOIN", "LEFT", "RIGHT", "INNER", "ON",
+            "ORDER", "GROUP", "LIMIT", "USING", "FORCE", "USE", "IGNORE");
+
+    private static final IndexCheck[] INDEX_CHECKS = {
+            new IndexCheck("history", "results", "idx_results_user_date",
+                    "SELECT result_id, score, total_questions, date_taken FROM results WHERE user_id = 1 ORDER BY date_taken DESC"),
+            new IndexCheck("history page", "results", "idx_results_user_date",
+                    "SELECT result_id, score, total_questions, date_taken FROM results WHERE user_id = 1 " +
+                            "AND (date_taken < '2000-01-01' OR (date_taken = '2000-01-01' AND result_id < 1)) " +
+                            "ORDER BY date_taken DESC, result_id DESC LIMIT 50"),
+            new IndexCheck("result answers", "attempts", "idx_attempts_result_question",
+                    "SELECT a.question_id, a.chosen_option, a.is_correct, q.correct_option FROM attempts a " +
+                            "JOIN questions q ON a.question_id = q.question_id WHERE a.result_id = 1 ORDER BY a.question_id"),
+            new IndexCheck("result detail", "attempts", "idx_attempts_result_question",
+                    "SELECT r.user_id, r.score, a.question_id, a.chosen_option, a.is_correct, q.correct_option FROM results r " +
+                            "LEFT JOIN attempts a ON a.result_id = r.result_id " +
+                            "LEFT JOIN questions q ON a.question_id = q.question_id WHERE r.result_id = 1 ORDER BY a.question_id"),
+            new IndexCheck("item statistics", "results", "idx_results_completed",
+                    "SELECT a.question_id, a.chosen_option, a.is_correct, a.response_ms, r.score, r.total_questions, r.ability " +
+                            "FROM results r JOIN attempts a ON a.result_id = r.result_id " +
+                            "WHERE r.completed_on > '2000-01-01' AND r.completed_on <= '2000-01-02' " +
+                            "AND a.question_id BETWEEN 1 AND 5000"),
+            new IndexCheck("item statistics attempts", "attempts", "idx_attempts_result_question",
+                    "SELECT a.question_id, a.chosen_option, a.is_correct, a.response_ms, r.score, r.total_questions, r.ability " +
+                            "FROM results r JOIN attempts a ON a.result_id = r.result_id " +
+                            "WHERE r.completed_on > '2000-01-01' AND r.completed_on <= '2000-01-02' " +
+                            "AND a.question_id BETWEEN 1 AND 5000"),
+            new IndexCheck("login", "users", "uq_users_username",
+                    "SELECT user_id FROM users WHERE username = 'x' AND password = 'x'"),
+    };
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Applies every migration that has not run yet (blocking)
+     * @return Number of migrations applied
+     */
+    public static synchronized int migrate() throws SQLException {
+        List<Migration> migrations = loadMigrations();
+        int applied = 0;
+        try (Connection conn = DataAccess.connect()) {
+            createVersionTable(conn);
+            Map<Integer, String> appliedChecksums = loadAppliedChecksums(conn);
+            for (Migration migration : migrations) {
+                String checksum = appliedChecksums.get(migration.version);
+                if (checksum != null) {
+                    if (!checksum.equals(migration.checksum)) {
+                        throw new SQLException("Migration " + migration.fileName + " was changed after it was applied"
+                                + " (stored checksum " + checksum + ", file " + migration.checksum + ")");
+                    }
+                    continue;
+                }
+                apply(conn, migration);
+                applied++;
+            }
+        }
+        if (applied > 0) {
+            Log.info("Applied {} schema migration(s)", applied);
+        }
+        return applied;
+    }
+
+    /**
+     * EXPLAINs the hot queries and logs a warning for each one that does not use its index
+     * @return Names of the queries whose plan is missing the expected index
+     */
+    public static List<String> checkIndexUsage() throws SQLException {
+        List<String> problems = new ArrayList<>();
+        try (Connection conn = DataAccess.connect()) {
+            boolean mysql = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+            for (IndexCheck check : INDEX_CHECKS) {
+                if (countRows(conn, check.table) < EXPLAIN_MIN_ROWS) {
+                    continue;
+                }
+                boolean usesIndex = mysql ? mysqlUsesIndex(conn, check)
+                        : explain(conn, check.sql).toLowerCase(Locale.ROOT).contains(check.index.toLowerCase(Locale.ROOT));
+                if (!usesIndex) {
+                    Log.warn("The {} query does not use index {}; plan: {}", check.name, check.index, explain(conn, check.sql));
+                    problems.add(check.name);
+                }
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * @return Whether MySQL's plan reads the checked table through the index: only the "key"
+     *         column counts, possible_keys names every index that merely applies
+     */
+    private static boolean mysqlUsesIndex(Connection conn, IndexCheck check) throws SQLException {
+        String table = check.table.toLowerCase(Locale.ROOT);
+        String alias = aliasOf(check.sql, check.table);
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("EXPLAIN " + check.sql)) {
+            while (rs.next()) {
+                String extra = rs.getString("Extra");
+                // A unique lookup of a missing key is resolved while planning and names no index
+                if (extra != null && extra.toLowerCase(Locale.ROOT).contains("no matching row in const table")) {
+                    return true;
+                }
+                String rowTable = rs.getString("table");
+                if (rowTable == null || !(rowTable.equalsIgnoreCase(table) || rowTable.equalsIgnoreCase(alias))) {
+                    continue;
+                }
+                String key = rs.getString("key");
+                // An index merge lists several keys
+                return key != null && Arrays.asList(key.toLowerCase(Locale.ROOT).split(","))
+                        .contains(check.index.toLowerCase(Locale.ROOT));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Alias the query gives the table (MySQL's EXPLAIN shows it instead of the name), or null
+     */
+    private static String aliasOf(String sql, String table) {
+        Matcher matcher = Pattern.compile("\\b(?:FROM|JOIN)\\s+" + table + "\\s+(?:AS\\s+)?(\\w+)",
+                Pattern.CASE_INSENSITIVE).matcher(sql);
+        if (!matcher.find()) {
+            return null;
+        }
+        String alias = matcher.group(1);
+        return SQL_KEYWORDS.contains(alias.toUpperCase(Locale.ROOT)) ? null : alias;
+    }
+
+    private static void createVersionTable(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "checksum CHAR(64) NOT NULL, " +
+                    "installed_on DATETIME NOT NULL, " +
+                    "execution_millis INT NOT NULL)");
+        }
+    }
+
+    private static Map<Integer, String> loadAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> checksums = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                checksums.put(rs.getInt("version"), rs.getString("checksum").trim());
+            }
+        }
+        return checksums;
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        long start = System.currentTimeMillis();
+        // MySQL commits DDL implicitly, so a failed migration is reported rather than rolled back
+        try (Statement st = conn.createStatement()) {
+            for (String sql : migration.statements) {
+                try {
+                    st.execute(sql);
+                } catch (SQLException e) {
+                    throw new SQLException("Migration " + migration.fileName + " failed at: " + sql, e);
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_version(version, description, checksum, installed_on, execution_millis) VALUES (?, ?, ?, ?, ?)")) {
+            ps.setInt(1, migration.version);
+            ps.setString(2, migration.description);
+            ps.setString(3, migration.checksum);
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setInt(5, (int) (System.currentTimeMillis() - start));
+            ps.executeUpdate();
+        }
+        Log.info("Applied schema migration {}", migration.fileName);
+    }
+
+    private static long countRows(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * @return Every cell of the EXPLAIN output joined together; on H2 the plan text names the chosen index
+     */
+    private static String explain(Connection conn, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("EXPLAIN " + sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= columns; i++) {
+                    plan.append(rs.getMetaData().getColumnLabel(i)).append('=').append(rs.getString(i)).append(' ');
+                }
+            }
+        }
+        return plan.toString().trim();
+    }
+
+    private static List<Migration> loadMigrations() throws SQLException {
+        List<Migration> migrations = new ArrayList<>();
+        try {
+            int lastVersion = 0;
+            for (String fileName : readLines(MIGRATION_DIR + "migrations.txt")) {
+                Matcher matcher = FILE_NAME.matcher(fileName);
+                if (!matcher.matches()) {
+                    throw new SQLException("Bad migration file name: " + fileName);
+                }
+                int version = Integer.parseInt(matcher.group(1));
+                if (version <= lastVersion) {
+                    throw new SQLException("Migration " + fileName + " is out of order");
+                }
+                lastVersion = version;
+                String script = String.join("\n", readLines(MIGRATION_DIR + fileName));
+                migrations.add(new Migration(version, matcher.group(2).replace('_', ' '), fileName,
+                        sha256(script), splitStatements(script)));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read the schema migrations", e);
+        }
+        return migrations;
+    }
+
+    /**
+     * @return Non-blank, non-comment lines of a classpath resource
+     */
+    private static List<String> readLines(String resource) throws IOException {
+        InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("Missing resource " + resource);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#") && !trimmed.startsWith("--")) {
+                    lines.add(trimmed);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Splits a script on semicolons at the end of a line
+     */
+    private static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\n")) {
+            current.append(line).append('\n');
+            if (line.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1).trim());
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private static String sha256(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * One versioned migration script
+     */
+    private static final class Migration {
+        final int version;
+        final String description;
+        final String fileName;
+        final String checksum;
+        final List<String> statements;
+
+        Migration(int version, String description, String fileName, String checksum, List<String> statements) {
+            this.version = version;
+            this.description = description;
+            this.fileName = fileName;
+            this.checksum = checksum;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * A hot query and the index its plan must mention
+     */
+    private static final class IndexCheck {
+        final String name;
+        final String table;
+        final String index;
+        final String sql;
+
+        IndexCheck(String name, String table, String index, String sql) {
+            this.name = name;
+            this.table = table;
+            this.index = index;
+            this.sql = sql;
+        }
+    }
+}
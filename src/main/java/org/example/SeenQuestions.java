@@ -0,0 +1,88 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * SeenQuestions class - Maintains user_seen_questions, the questions each user has answered
+ * A user's row holds a QuestionBitmap of the questions in their completed tests, so test
+ * assembly can leave them out with one primary key lookup and bitmap operations instead of
+ * a NOT IN subquery over attempts that grows with every test. recordCompletion() adds a
+ * finished test inside the transaction that stores its score; a user without a row yet
+ * (e.g. tests taken before the table existed) gets one built from attempts.
+ */
+public final class SeenQuestions {
+    private static final String UPSERT =
+            "INSERT INTO user_seen_questions(user_id, seen, question_count, updated_on) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE seen = VALUES(seen), question_count = VALUES(question_count), " +
+                    "updated_on = VALUES(updated_on)";
+
+    private SeenQuestions() {
+    }
+
+    /**
+     * @return Questions the user answered in completed tests (empty for a new user)
+     */
+    public static QuestionBitmap load(int userId) throws SQLException {
+        try (Connection conn = DataAccess.connect()) {
+            QuestionBitmap seen = read(conn, userId, false);
+            return seen != null ? seen : fromAttempts(conn, userId);
+        }
+    }
+
+    /**
+     * Adds the questions of a test that was just completed to its user's row, on the caller's
+     * connection and transaction; the row is locked so concurrent completions do not lose updates
+     */
+    static void recordCompletion(Connection conn, int userId, int resultId, Timestamp completedOn) throws SQLException {
+        QuestionBitmap seen = read(conn, userId, true);
+        if (seen == null) {
+            // Already includes this result, whose completed_on is set in this transaction
+            seen = fromAttempts(conn, userId);
+        } else {
+            PreparedStatement ps = conn.prepareStatement("SELECT question_id FROM attempts WHERE result_id = ?");
+            ps.setInt(1, resultId);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                seen.add(rs.getInt(1));
+            }
+            rs.close();
+            ps.close();
+        }
+        PreparedStatement ps = conn.prepareStatement(UPSERT);
+        ps.setInt(1, userId);
+        ps.setBytes(2, seen.toBytes());
+        ps.setInt(3, seen.cardinality());
+        ps.setTimestamp(4, completedOn);
+        ps.executeUpdate();
+        ps.close();
+    }
+
+    private static QuestionBitmap read(Connection conn, int userId, boolean forUpdate) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement("SELECT seen FROM user_seen_questions WHERE user_id = ?"
+                + (forUpdate ? " FOR UPDATE" : ""));
+        ps.setInt(1, userId);
+        ResultSet rs = ps.executeQuery();
+        QuestionBitmap seen = rs.next() ? QuestionBitmap.fromBytes(rs.getBytes(1)) : null;
+        rs.close();
+        ps.close();
+        return seen;
+    }
+
+    private static QuestionBitmap fromAttempts(Connection conn, int userId) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement("SELECT DISTINCT a.question_id FROM attempts a " +
+                "JOIN results r ON r.result_id = a.result_id WHERE r.user_id = ? AND r.completed_on IS NOT NULL");
+        ps.setInt(1, userId);
+        ResultSet rs = ps.executeQuery();
+        QuestionBitmap seen = new QuestionBitmap();
+        while (rs.next()) {
+            seen.add(rs.getInt(1));
+        }
+        rs.close();
+        ps.close();
+        return seen;
+    }
+}
@@ -0,0 +1,280 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * SqlStatistics class - Per-statement counters and latency histograms for all database access
+ * Statements are grouped by shape: whitespace is collapsed and literals are replaced by ?,
+ * so every execution of the same query lands in one entry whatever its parameters.
+ * Exposed as the org.example:type=SqlStatistics MXBean and dumped to stdout every
+ * iq.sql.statsDumpSeconds (0 turns the dump off).
+ */
+public final class SqlStatistics {
+    private static final long DUMP_SECONDS = Long.getLong("iq.sql.statsDumpSeconds", 300);
+    // Plain statements with inlined literals could grow the raw-SQL cache without bound
+    private static final int MAX_CACHED_SQL = 1_000;
+    private static final int REPORT_SQL_WIDTH = 90;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<String, StatementStats> BY_SHAPE = new ConcurrentHashMap<>();
+    private static final Map<String, StatementStats> BY_SQL = new ConcurrentHashMap<>();
+    private static long executionsAtLastDump;
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new JmxView(),
+                    new ObjectName("org.example:type=SqlStatistics"));
+        } catch (JMException e) {
+            // Already registered by another class loader, or JMX unavailable
+            Log.warn("Could not register the SQL statistics MBean", e);
+        }
+        if (DUMP_SECONDS > 0) {
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "sql-stats-dump");
+                t.setDaemon(true);
+                return t;
+            });
+            dumper.scheduleWithFixedDelay(SqlStatistics::dumpIfActive, DUMP_SECONDS, DUMP_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private SqlStatistics() {
+    }
+
+    /**
+     * @return Statistics entry of the statement's shape, created on first use
+     */
+    static StatementStats forSql(String sql) {
+        StatementStats stats = BY_SQL.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        stats = BY_SHAPE.computeIfAbsent(shape(sql), StatementStats::new);
+        if (BY_SQL.size() < MAX_CACHED_SQL) {
+            BY_SQL.put(sql, stats);
+        }
+        return stats;
+    }
+
+    static String shape(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * @return Current numbers of every statement shape, slowest total time first
+     */
+    public static List<StatementSnapshot> snapshot() {
+        List<StatementSnapshot> snapshots = new ArrayList<>();
+        for (StatementStats stats : BY_SHAPE.values()) {
+            snapshots.add(new StatementSnapshot(stats));
+        }
+        snapshots.sort(Comparator.comparingDouble(StatementSnapshot::getTotalMillis).reversed());
+        return snapshots;
+    }
+
+    /**
+     * @return Text table of all statements, slowest total time first
+     */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%9s %6s %9s %10s %9s %9s %9s %9s %9s %9s  %s%n",
+                "count", "errors", "rows", "total ms", "exec p50", "exec p95", "exec p99",
+                "exec max", "prep p99", "fetch p99", "statement (latencies in ms)"));
+        for (StatementSnapshot s : snapshot()) {
+            String sql = s.getSql().length() > REPORT_SQL_WIDTH
+                    ? s.getSql().substring(0, REPORT_SQL_WIDTH - 3) + "..."
+                    : s.getSql();
+            sb.append(String.format("%9d %6d %9d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    s.getCount(), s.getErrors(), s.getRows(), s.getTotalMillis(),
+                    s.getExecuteP50Millis(), s.getExecuteP95Millis(), s.getExecuteP99Millis(),
+                    s.getExecuteMaxMillis(), s.getPrepareP99Millis(), s.getFetchP99Millis(), sql));
+        }
+        return sb.toString();
+    }
+
+    public static void reset() {
+        for (StatementStats stats : BY_SHAPE.values()) {
+            stats.reset();
+        }
+    }
+
+    private static long totalExecutions() {
+        long total = 0;
+        for (StatementStats stats : BY_SHAPE.values()) {
+            total += stats.execute.getCount();
+        }
+        return total;
+    }
+
+    private static long totalErrors() {
+        long total = 0;
+        for (StatementStats stats : BY_SHAPE.values()) {
+            total += stats.errors.sum();
+        }
+        return total;
+    }
+
+    private static void dumpIfActive() {
+        long executions = totalExecutions();
+        if (executions != executionsAtLastDump) {
+            executionsAtLastDump = executions;
+            Log.info("SQL statistics:{}", System.lineSeparator() + report());
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Live counters of one statement shape
+     */
+    static final class StatementStats {
+        final String sql;
+        final LatencyHistogram prepare = new LatencyHistogram();
+        final LatencyHistogram execute = new LatencyHistogram();
+        // Time spent in ResultSet.next() over the whole result
+        final LatencyHistogram fetch = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        void reset() {
+            prepare.reset();
+            execute.reset();
+            fetch.reset();
+            errors.reset();
+            rows.reset();
+        }
+    }
+
+    /**
+     * Point-in-time numbers of one statement shape, as shown through JMX
+     */
+    public static final class StatementSnapshot {
+        private final String sql;
+        private final long count;
+        private final long errors;
+        private final long rows;
+        private final double totalMillis;
+        private final double prepareP99Millis;
+        private final double executeMeanMillis;
+        private final double executeP50Millis;
+        private final double executeP95Millis;
+        private final double executeP99Millis;
+        private final double executeMaxMillis;
+        private final double fetchP99Millis;
+
+        StatementSnapshot(StatementStats stats) {
+            sql = stats.sql;
+            count = stats.execute.getCount();
+            errors = stats.errors.sum();
+            rows = stats.rows.sum();
+            totalMillis = millis((long) (stats.prepare.getMean() * stats.prepare.getCount()
+                    + stats.execute.getMean() * count
+                    + stats.fetch.getMean() * stats.fetch.getCount()));
+            prepareP99Millis = millis(stats.prepare.valueAtPercentile(99));
+            executeMeanMillis = millis((long) stats.execute.getMean());
+            executeP50Millis = millis(stats.execute.valueAtPercentile(50));
+            executeP95Millis = millis(stats.execute.valueAtPercentile(95));
+            executeP99Millis = millis(stats.execute.valueAtPercentile(99));
+            executeMaxMillis = millis(stats.execute.getMax());
+            fetchP99Millis = millis(stats.fetch.valueAtPercentile(99));
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getTotalMillis() {
+            return totalMillis;
+        }
+
+        public double getPrepareP99Millis() {
+            return prepareP99Millis;
+        }
+
+        public double getExecuteMeanMillis() {
+            return executeMeanMillis;
+        }
+
+        public double getExecuteP50Millis() {
+            return executeP50Millis;
+        }
+
+        public double getExecuteP95Millis() {
+            return executeP95Millis;
+        }
+
+        public double getExecuteP99Millis() {
+            return executeP99Millis;
+        }
+
+        public double getExecuteMaxMillis() {
+            return executeMaxMillis;
+        }
+
+        public double getFetchP99Millis() {
+            return fetchP99Millis;
+        }
+    }
+
+    private static final class JmxView implements SqlStatisticsMXBean {
+        @Override
+        public List<StatementSnapshot> getStatements() {
+            return snapshot();
+        }
+
+        @Override
+        public long getTotalExecutions() {
+            return totalExecutions();
+        }
+
+        @Override
+        public long getTotalErrors() {
+            return totalErrors();
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            SqlStatistics.reset();
+        }
+    }
+}
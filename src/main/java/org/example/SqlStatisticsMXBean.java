@@ -0,0 +1,29 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * SqlStatisticsMXBean interface - JMX view of the per-statement database timings
+ * Registered as org.example:type=SqlStatistics; browse it with JConsole or VisualVM.
+ */
+public interface SqlStatisticsMXBean {
+
+    /**
+     * @return One entry per distinct SQL statement shape, slowest total time first
+     */
+    List<SqlStatistics.StatementSnapshot> getStatements();
+
+    long getTotalExecutions();
+
+    long getTotalErrors();
+
+    /**
+     * @return The same table as the periodic text dump
+     */
+    String getReport();
+
+    /**
+     * Clears all counters and histograms
+     */
+    void reset();
+}
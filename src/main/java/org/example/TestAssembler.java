@@ -0,0 +1,216 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * TestAssembler class - Draws the questions of a test from an in-memory index of the bank
+ * Question IDs are grouped into strata by difficulty and category. A test gets from every
+ * stratum its share of the bank (largest remainder rounding, ties broken at random), the
+ * IDs within a stratum are sampled with Floyd's algorithm, and the test runs from easy to
+ * hard with the order shuffled inside each difficulty. A draw touches only the IDs it
+ * picks, so it stays in the microseconds however large the bank is. A draw can exclude
+ * questions the candidate has already seen, falling back on them only for the questions
+ * the unseen ones cannot fill; each stratum also keeps its IDs as a QuestionBitmap, the
+ * unseen ones are found with one andNot per stratum and the sample is taken by rank from
+ * the result. Immutable.
+ */
+public final class TestAssembler {
+    // Strata sorted by difficulty, then category
+    private final int[] strataDifficulty;
+    private final int[][] strataIds;
+    private final QuestionBitmap[] strataSets;
+    private final int[] strataSizes;
+    private final int size;
+
+    public TestAssembler(Collection<Question> questions) {
+        Map<String, List<Integer>> grouped = new TreeMap<>();
+        Map<String, Integer> difficultyOf = new TreeMap<>();
+        for (Question question : questions) {
+            // Zero-padded so the TreeMap orders by difficulty first
+            String key = String.format("%05d|%s", question.getDifficulty(), question.getCategory());
+            grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(question.getId());
+            difficultyOf.put(key, question.getDifficulty());
+        }
+        strataDifficulty = new int[grouped.size()];
+        strataIds = new int[grouped.size()][];
+        strataSets = new QuestionBitmap[grouped.size()];
+        strataSizes = new int[grouped.size()];
+        int stratum = 0;
+        int total = 0;
+        for (Map.Entry<String, List<Integer>> entry : grouped.entrySet()) {
+            strataDifficulty[stratum] = difficultyOf.get(entry.getKey());
+            int[] ids = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(ids);
+            strataIds[stratum] = ids;
+            strataSets[stratum] = QuestionBitmap.of(ids);
+            strataSizes[stratum] = ids.length;
+            total += ids.length;
+            stratum++;
+        }
+        size = total;
+    }
+
+    /**
+     * @return Number of questions in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Draws a stratified random set of distinct questions
+     * @param count Number of questions in the test
+     * @return Question IDs in the order they should be asked
+     */
+    public int[] draw(int count, Random random) {
+        if (count > size) {
+            throw new IllegalArgumentException("The question bank has " + size + " questions, the test needs " + count);
+        }
+        int[] quotas = allocate(strataSizes, size, count, random);
+        IntUnaryOperator[] pickers = new IntUnaryOperator[strataIds.length];
+        for (int stratum = 0; stratum < strataIds.length; stratum++) {
+            int[] ids = strataIds[stratum];
+            pickers[stratum] = index -> ids[index];
+        }
+        return assemble(strataSizes, quotas, pickers, null, null, null, random);
+    }
+
+    /**
+     * Draws like draw(count, random) from the questions that are not in seen; if fewer
+     * than count of those are left, the test gets all of them and is topped up with seen
+     * questions, the shortfall split over the strata in proportion to their seen questions
+     * @param seen Questions to leave out, e.g. those the candidate has answered before
+     */
+    public int[] draw(int count, Random random, QuestionBitmap seen) {
+        if (seen == null || seen.isEmpty()) {
+            return draw(count, random);
+        }
+        QuestionBitmap[] unseen = new QuestionBitmap[strataSets.length];
+        int[] sizes = new int[strataSets.length];
+        int available = 0;
+        for (int stratum = 0; stratum < strataSets.length; stratum++) {
+            unseen[stratum] = strataSets[stratum].andNot(seen);
+            sizes[stratum] = unseen[stratum].cardinality();
+            available += sizes[stratum];
+        }
+        if (count > size) {
+            throw new IllegalArgumentException("The question bank has " + size + " questions, the test needs " + count);
+        }
+        IntUnaryOperator[] pickers = new IntUnaryOperator[strataSets.length];
+        for (int stratum = 0; stratum < strataSets.length; stratum++) {
+            pickers[stratum] = unseen[stratum]::select;
+        }
+        if (available >= count) {
+            int[] quotas = allocate(sizes, available, count, random);
+            return assemble(sizes, quotas, pickers, null, null, null, random);
+        }
+        int[] seenSizes = new int[strataSets.length];
+        IntUnaryOperator[] seenPickers = new IntUnaryOperator[strataSets.length];
+        for (int stratum = 0; stratum < strataSets.length; stratum++) {
+            QuestionBitmap seenInStratum = strataSets[stratum].andNot(unseen[stratum]);
+            seenSizes[stratum] = seenInStratum.cardinality();
+            seenPickers[stratum] = seenInStratum::select;
+        }
+        int[] seenQuotas = allocate(seenSizes, size - available, count - available, random);
+        return assemble(sizes, sizes, pickers, seenSizes, seenQuotas, seenPickers, random);
+    }
+
+    /**
+     * Samples every stratum and puts the test in order
+     * @param pickers Question ID at an index (0 to size - 1) of each stratum
+     * @param topUpSizes Sizes, quotas and pickers of a second set of questions per stratum
+     *                   sampled along with the first, or null
+     */
+    private int[] assemble(int[] sizes, int[] quotas, IntUnaryOperator[] pickers,
+                           int[] topUpSizes, int[] topUpQuotas, IntUnaryOperator[] topUpPickers, Random random) {
+        int count = 0;
+        for (int stratum = 0; stratum < sizes.length; stratum++) {
+            count += quotas[stratum] + (topUpQuotas != null ? topUpQuotas[stratum] : 0);
+        }
+        int[] order = new int[count];
+        int filled = 0;
+        int levelStart = 0;
+        for (int stratum = 0; stratum < sizes.length; stratum++) {
+            filled = sample(sizes[stratum], quotas[stratum], pickers[stratum], random, order, filled);
+            if (topUpQuotas != null) {
+                filled = sample(topUpSizes[stratum], topUpQuotas[stratum], topUpPickers[stratum], random, order, filled);
+            }
+            boolean lastOfLevel = stratum + 1 == strataIds.length
+                    || strataDifficulty[stratum + 1] != strataDifficulty[stratum];
+            if (lastOfLevel) {
+                shuffle(order, levelStart, filled, random);
+                levelStart = filled;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Splits count over the strata in proportion to their size
+     */
+    private static int[] allocate(int[] sizes, int total, int count, Random random) {
+        int[] quotas = new int[sizes.length];
+        double[] remainders = new double[sizes.length];
+        int assigned = 0;
+        for (int stratum = 0; stratum < sizes.length; stratum++) {
+            double exact = (double) count * sizes[stratum] / total;
+            quotas[stratum] = (int) exact;
+            // The random part only breaks ties between equal remainders
+            remainders[stratum] = exact - quotas[stratum] + random.nextDouble() * 1e-9;
+            assigned += quotas[stratum];
+        }
+        Integer[] byRemainder = new Integer[sizes.length];
+        for (int i = 0; i < byRemainder.length; i++) {
+            byRemainder[i] = i;
+        }
+        Arrays.sort(byRemainder, Comparator.comparingDouble(stratum -> -remainders[stratum]));
+        for (int i = 0; assigned < count; i++) {
+            int stratum = byRemainder[i];
+            // A quota below the exact share is always below the stratum size
+            if (quotas[stratum] < sizes[stratum]) {
+                quotas[stratum]++;
+                assigned++;
+            }
+        }
+        return quotas;
+    }
+
+    /**
+     * Floyd's algorithm: k distinct indexes below n in O(k), mapped to IDs by picker
+     */
+    private static int sample(int n, int k, IntUnaryOperator picker, Random random, int[] out, int offset) {
+        if (k == 0) {
+            return offset;
+        }
+        Set<Integer> picked = new HashSet<>(k * 2);
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            // j itself has never been a candidate before, so it is free whenever t is taken
+            int index = picked.add(t) ? t : j;
+            if (index == j) {
+                picked.add(j);
+            }
+            out[offset++] = picker.applyAsInt(index);
+        }
+        return offset;
+    }
+
+    private static void shuffle(int[] values, int from, int to, Random random) {
+        for (int i = to - 1; i > from; i--) {
+            int j = from + random.nextInt(i - from + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * TestEvents class - Java Flight Recorder events for the test lifecycle and data access
+ * Record a session with -XX:StartFlightRecording and open it in JDK Mission Control to
+ * see these next to GC pauses, thread states and socket reads on one timeline.
+ * Events cost next to nothing while no recording is running.
+ */
+public final class TestEvents {
+
+    private TestEvents() {
+    }
+
+    @Name("org.example.FrameConstruction")
+    @Label("Frame Construction")
+    @Category({"IQ Test", "UI"})
+    @Description("Building and showing a window")
+    static final class FrameConstruction extends Event {
+        @Label("Frame")
+        String frame;
+
+        @Label("User ID")
+        int userId;
+
+        void finish(String frame, int userId) {
+            if (shouldCommit()) {
+                this.frame = frame;
+                this.userId = userId;
+                commit();
+            }
+        }
+    }
+
+    @Name("org.example.QuestionLoad")
+    @Label("Question Load")
+    @Category({"IQ Test", "Test"})
+    @Description("Getting a question for a test position, from the session or the question bank")
+    static final class QuestionLoad extends Event {
+        @Label("Result ID")
+        int resultId;
+
+        @Label("Question ID")
+        int questionId;
+
+        @Label("Position")
+        int position;
+
+        @Label("Already Loaded")
+        boolean cached;
+    }
+
+    @Name("org.example.AnswerGrading")
+    @Label("Answer Grading")
+    @Category({"IQ Test", "Test"})
+    static final class AnswerGrading extends Event {
+        @Label("User ID")
+        int userId;
+
+        @Label("Result ID")
+        int resultId;
+
+        @Label("Question ID")
+        int questionId;
+
+        @Label("Correct")
+        boolean correct;
+
+        @Label("Timed Out")
+        boolean timedOut;
+
+        @Label("Response Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long responseTime;
+    }
+
+    @Name("org.example.AttemptPersist")
+    @Label("Attempt Persist")
+    @Category({"IQ Test", "Database"})
+    @Description("Writing buffered attempts, and the final score if the test is complete, in one transaction")
+    static final class AttemptPersist extends Event {
+        @Label("Result ID")
+        int resultId;
+
+        @Label("Attempts")
+        int attempts;
+
+        @Label("Final Score")
+        @Description("-1 when the test is not complete yet")
+        int finalScore;
+
+        @Label("Stored")
+        boolean stored;
+    }
+
+    @Name("org.example.TimerTick")
+    @Label("Timer Tick")
+    @Category({"IQ Test", "UI"})
+    static final class TimerTick extends Event {
+        @Label("Result ID")
+        int resultId;
+
+        @Label("Position")
+        int position;
+
+        @Label("Remaining Seconds")
+        int remainingSeconds;
+    }
+
+    @Name("org.example.ResultsRender")
+    @Label("Results Render")
+    @Category({"IQ Test", "UI"})
+    @Description("Filling the results window with loaded data")
+    static final class ResultsRender extends Event {
+        @Label("User ID")
+        int userId;
+
+        @Label("Result ID")
+        int resultId;
+
+        @Label("Part")
+        String part;
+
+        @Label("Rows")
+        int rows;
+    }
+
+    @Name("org.example.DatabaseStatement")
+    @Label("Database Statement")
+    @Category({"IQ Test", "Database"})
+    static final class DatabaseStatement extends Event {
+        @Label("SQL")
+        String sql;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Failed")
+        boolean failed;
+    }
+}
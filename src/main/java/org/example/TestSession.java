@@ -0,0 +1,375 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * TestSession class - One candidate's run through a test, independent of any UI
+ * Holds the score, position and per-question deadline and grades answers.
+ *
+ * State machine:
+ * NEW --start--> READY --present--> PRESENTING --answer/timeout--> READY (or FINISHED
+ * after the last question) --complete--> COMPLETE
+ * READY/PRESENTING/FINISHED --abandon--> ABANDONED
+ *
+ * In adaptive mode (see AdaptiveTest) each question is picked after the answer to the one
+ * before it, and the test may finish before totalQuestions, which is then its maximum.
+ *
+ * Storage, clock and the executor used for writes are pluggable, so sessions can run
+ * headless and many of them side by side in one JVM. All methods are thread-safe.
+ */
+public class TestSession {
+    public static final int DEFAULT_TOTAL_QUESTIONS = 20;
+    public static final int DEFAULT_SECONDS_PER_QUESTION = 30;
+    public static final String TIMEOUT_OPTION = "TIMEOUT";
+
+    public enum State { NEW, READY, PRESENTING, FINISHED, COMPLETE, ABANDONED }
+
+    /**
+     * Monotonic time source, replaceable in load tests
+     */
+    @FunctionalInterface
+    public interface Clock {
+        Clock SYSTEM = System::nanoTime;
+
+        long nanoTime();
+    }
+
+    private final int userId;
+    private final int totalQuestions;
+    private final long timeLimitNanos;
+    private final TestStorage storage;
+    private final Clock clock;
+    private final Executor writeExecutor;
+    private final boolean adaptiveMode;
+
+    // Question ID shown at each position (drawn by start()), and questions already fetched for them
+    private volatile int[] questionOrder;
+    // Item selection and ability estimate of an adaptive test, created by start()
+    private AdaptiveTest adaptive;
+    private final AtomicReferenceArray<Question> loaded;
+
+    private State state = State.NEW;
+    private int resultId;
+    private int position;
+    private int score;
+    private long presentedAt;
+    private long deadline;
+    // Writes of this session, applied one after another in answer order
+    private CompletableFuture<Void> writes = CompletableFuture.completedFuture(null);
+
+    /**
+     * Fixed-length or adaptive test depending on iq.cat.enabled
+     */
+    public TestSession(int userId, TestStorage storage) {
+        this(userId, AdaptiveTest.ENABLED ? AdaptiveTest.MAX_QUESTIONS : DEFAULT_TOTAL_QUESTIONS,
+                DEFAULT_SECONDS_PER_QUESTION, storage, Clock.SYSTEM, AsyncDataAccess.executor(), AdaptiveTest.ENABLED);
+    }
+
+    /**
+     * @param writeExecutor Runs storage writes; Runnable::run makes them synchronous
+     */
+    public TestSession(int userId, int totalQuestions, int secondsPerQuestion,
+                       TestStorage storage, Clock clock, Executor writeExecutor) {
+        this(userId, totalQuestions, secondsPerQuestion, storage, clock, writeExecutor, false);
+    }
+
+    /**
+     * @param totalQuestions Length of a fixed test, maximum length of an adaptive one
+     * @param adaptive Whether to pick each question from the answers so far
+     */
+    public TestSession(int userId, int totalQuestions, int secondsPerQuestion,
+                       TestStorage storage, Clock clock, Executor writeExecutor, boolean adaptive) {
+        this.userId = userId;
+        this.totalQuestions = totalQuestions;
+        this.timeLimitNanos = TimeUnit.SECONDS.toNanos(secondsPerQuestion);
+        this.storage = storage;
+        this.clock = clock;
+        this.writeExecutor = writeExecutor;
+        this.adaptiveMode = adaptive;
+        this.loaded = new AtomicReferenceArray<>(totalQuestions);
+    }
+
+    /**
+     * Creates the result record and draws the questions (blocking)
+     * @return Result ID of this test
+     */
+    public synchronized int start() throws SQLException {
+        expect(State.NEW);
+        resultId = storage.createResult(userId, totalQuestions);
+        if (adaptiveMode) {
+            adaptive = storage.startAdaptiveTest(resultId, userId);
+            questionOrder = new int[totalQuestions];
+            questionOrder[0] = adaptive.next();
+        } else {
+            questionOrder = storage.assembleTest(resultId, userId, totalQuestions);
+        }
+        state = State.READY;
+        return resultId;
+    }
+
+    /**
+     * Fetches the question at a position without changing state; safe to call from any
+     * thread ahead of time so that present() does not have to wait
+     * @param position Zero-based position in the test
+     */
+    public Question questionAt(int position) throws SQLException {
+        TestEvents.QuestionLoad event = new TestEvents.QuestionLoad();
+        event.begin();
+        Question question = loaded.get(position);
+        boolean cached = question != null;
+        if (question == null) {
+            if (questionOrder[position] == 0) {
+                throw new IllegalStateException("Question " + (position + 1) + " is not chosen until the one before it is answered");
+            }
+            question = storage.loadQuestion(questionOrder[position]);
+            if (question == null) {
+                throw new SQLException("Question " + questionOrder[position] + " was not found");
+            }
+            loaded.set(position, question);
+        }
+        if (event.shouldCommit()) {
+            event.resultId = resultId;
+            event.questionId = question.getId();
+            event.position = position;
+            event.cached = cached;
+            event.commit();
+        }
+        return question;
+    }
+
+    /**
+     * Shows the current question and starts its time limit
+     */
+    public synchronized Question present() throws SQLException {
+        expect(State.READY);
+        Question question = questionAt(position);
+        presentedAt = clock.nanoTime();
+        deadline = presentedAt + timeLimitNanos;
+        state = State.PRESENTING;
+        return question;
+    }
+
+    /**
+     * Grades an answer to the presented question; answers after the deadline count as timeouts
+     * @param option Letter A-D
+     */
+    public synchronized Outcome answer(String option) {
+        expect(State.PRESENTING);
+        TestEvents.AnswerGrading event = new TestEvents.AnswerGrading();
+        event.begin();
+        long now = clock.nanoTime();
+        if (now - deadline >= 0) {
+            return graded(event, advance(TIMEOUT_OPTION, false, true, now));
+        }
+        Question question = loaded.get(position);
+        boolean correct = optionNumber(option) == question.getCorrectOption();
+        if (correct) {
+            score++;
+        }
+        return graded(event, advance(option, correct, false, now));
+    }
+
+    /**
+     * Records that the presented question ran out of time
+     */
+    public synchronized Outcome timeout() {
+        expect(State.PRESENTING);
+        TestEvents.AnswerGrading event = new TestEvents.AnswerGrading();
+        event.begin();
+        return graded(event, advance(TIMEOUT_OPTION, false, true, clock.nanoTime()));
+    }
+
+    /**
+     * Writes the final score once every question has been answered
+     * @return Completes when this session's writes, including the final one, are stored
+     */
+    public synchronized CompletableFuture<Void> complete() {
+        expect(State.FINISHED);
+        state = State.COMPLETE;
+        int finalScore = score;
+        if (adaptive != null) {
+            int[] order = Arrays.copyOf(questionOrder, position);
+            AdaptiveTest.Estimate estimate = adaptive.estimate();
+            return enqueue(() -> {
+                storage.completeAdaptiveTest(resultId, finalScore, order, estimate);
+                return null;
+            });
+        }
+        return enqueue(() -> {
+            storage.completeTest(resultId, finalScore);
+            return null;
+        });
+    }
+
+    /**
+     * Gives up on a test that will not be completed, once the writes queued before are done
+     * @return Completes when the attempts so far are stored and the storage has released the test
+     */
+    public synchronized CompletableFuture<Void> abandon() {
+        if (state == State.NEW || state == State.COMPLETE || state == State.ABANDONED) {
+            return writes;
+        }
+        state = State.ABANDONED;
+        return enqueue(() -> {
+            storage.abandon(resultId);
+            return null;
+        });
+    }
+
+    private Outcome advance(String option, boolean correct, boolean timedOut, long answeredAt) {
+        int questionId = questionOrder[position];
+        // Measured on the session clock, so it does not depend on the UI's one-second timer
+        long responseNanos = answeredAt - presentedAt;
+        enqueue(() -> {
+            storage.recordAttempt(resultId, questionId, option, correct, responseNanos);
+            return null;
+        });
+        position++;
+        boolean finished = position == totalQuestions;
+        if (adaptive != null) {
+            // Picking the next item is a walk of a short precomputed list, cheap enough to do under the lock
+            adaptive.record(correct);
+            finished = finished || adaptive.isDone();
+            if (!finished) {
+                questionOrder[position] = adaptive.next();
+            }
+        }
+        state = finished ? State.FINISHED : State.READY;
+        return new Outcome(questionId, option, correct, timedOut, responseNanos, score, state == State.FINISHED);
+    }
+
+    private Outcome graded(TestEvents.AnswerGrading event, Outcome outcome) {
+        if (event.shouldCommit()) {
+            event.userId = userId;
+            event.resultId = resultId;
+            event.questionId = outcome.questionId;
+            event.correct = outcome.correct;
+            event.timedOut = outcome.timedOut;
+            event.responseTime = outcome.responseNanos;
+            event.commit();
+        }
+        return outcome;
+    }
+
+    private CompletableFuture<Void> enqueue(AsyncDataAccess.SqlCall<Void> write) {
+        writes = writes.handle((ignored, error) -> null).thenRunAsync(() -> {
+            try {
+                write.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, writeExecutor);
+        writes.whenComplete((ignored, error) -> {
+            if (error != null) {
+                Log.error("Could not store progress of result {}", resultId, error);
+            }
+        });
+        return writes;
+    }
+
+    private void expect(State expected) {
+        if (state != expected) {
+            throw new IllegalStateException("Session is " + state + ", expected " + expected);
+        }
+    }
+
+    /**
+     * Converts an option letter to its number: A=1, B=2, C=3, D=4 (0 if unknown)
+     */
+    public static int optionNumber(String letter) {
+        switch (letter.toUpperCase()) {
+            case "A": return 1;
+            case "B": return 2;
+            case "C": return 3;
+            case "D": return 4;
+            default: return 0;
+        }
+    }
+
+    /**
+     * @return Whole seconds left for the presented question (0 when expired)
+     */
+    public synchronized int remainingSeconds() {
+        if (state != State.PRESENTING) {
+            return 0;
+        }
+        long remaining = deadline - clock.nanoTime();
+        return remaining <= 0 ? 0 : (int) TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getResultId() {
+        return resultId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public synchronized int getScore() {
+        return score;
+    }
+
+    /**
+     * @return Zero-based position of the current (or next) question
+     */
+    public synchronized int getPosition() {
+        return position;
+    }
+
+    public boolean isAdaptive() {
+        return adaptiveMode;
+    }
+
+    /**
+     * @return Current ability estimate of an adaptive test, or null for a fixed one or before start()
+     */
+    public synchronized AdaptiveTest.Estimate getEstimate() {
+        return adaptive == null ? null : adaptive.estimate();
+    }
+
+    /**
+     * @return Length of a fixed test, maximum length of an adaptive one
+     */
+    public int getTotalQuestions() {
+        return totalQuestions;
+    }
+
+    public int getSecondsPerQuestion() {
+        return (int) TimeUnit.NANOSECONDS.toSeconds(timeLimitNanos);
+    }
+
+    /**
+     * Result of answering (or timing out on) one question
+     */
+    public static final class Outcome {
+        public final int questionId;
+        public final String chosenOption;
+        public final boolean correct;
+        public final boolean timedOut;
+        // Time from present() to the answer or timeout
+        public final long responseNanos;
+        public final int score;
+        public final boolean finished;
+
+        Outcome(int questionId, String chosenOption, boolean correct, boolean timedOut, long responseNanos,
+                int score, boolean finished) {
+            this.questionId = questionId;
+            this.chosenOption = chosenOption;
+            this.correct = correct;
+            this.timedOut = timedOut;
+            this.responseNanos = responseNanos;
+            this.score = score;
+            this.finished = finished;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example;
+
+import java.sql.SQLException;
+
+/**
+ * TestStorage interface - Where a TestSession reads questions and writes its results
+ * Implementations must be safe to share between concurrent sessions
+ */
+public interface TestStorage {
+
+    /**
+     * Creates the record of a new test
+     * @return ID identifying the test's result
+     */
+    int createResult(int userId, int totalQuestions) throws SQLException;
+
+    /**
+     * Picks the questions of a new test, preferring ones the user has not seen, and records
+     * their order with the result
+     * @return Question ID at each position
+     */
+    int[] assembleTest(int resultId, int userId, int totalQuestions) throws SQLException;
+
+    /**
+     * Prepares item selection for a new adaptive test, avoiding questions the user has seen
+     */
+    AdaptiveTest startAdaptiveTest(int resultId, int userId) throws SQLException;
+
+    /**
+     * @return The question, or null if it does not exist
+     */
+    Question loadQuestion(int questionId) throws SQLException;
+
+    /**
+     * Stores one answered or timed out question
+     * @param responseNanos Time from presenting the question to the answer or timeout
+     */
+    void recordAttempt(int resultId, int questionId, String chosenOption, boolean correct, long responseNanos) throws SQLException;
+
+    /**
+     * Stores the final score; no more attempts are recorded for this result afterwards
+     */
+    void completeTest(int resultId, int finalScore) throws SQLException;
+
+    /**
+     * Stores the attempts so far of a test that will not be completed and releases what it holds;
+     * no more attempts are recorded for this result afterwards
+     */
+    void abandon(int resultId) throws SQLException;
+
+    /**
+     * Stores the final score and ability estimate of an adaptive test and the order its
+     * questions were asked in; no more attempts are recorded for this result afterwards
+     */
+    void completeAdaptiveTest(int resultId, int finalScore, int[] questionOrder, AdaptiveTest.Estimate estimate) throws SQLException;
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import javax.swing.*;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * UiTasks class - Background calls owned by one frame
+ * Callbacks run on the event dispatch thread; cancelAll() (called from the frame's
+ * dispose) cancels calls still in flight and drops their callbacks
+ */
+public class UiTasks {
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * Delivers the outcome of a background call to the EDT
+     * @param future Call started through AsyncDataAccess
+     * @param onSuccess Receives the result on the EDT
+     * @param onError Receives the failure cause on the EDT
+     */
+    public <T> void run(CompletableFuture<T> future, Consumer<? super T> onSuccess, Consumer<Throwable> onError) {
+        if (cancelled) {
+            future.cancel(true);
+            return;
+        }
+        inFlight.add(future);
+        future.whenComplete((result, error) -> {
+            inFlight.remove(future);
+            if (cancelled || error instanceof CancellationException) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                // The frame may have been disposed while this was queued
+                if (cancelled) {
+                    return;
+                }
+                if (error == null) {
+                    onSuccess.accept(result);
+                } else {
+                    onError.accept(unwrap(error));
+                }
+            });
+        });
+    }
+
+    /**
+     * Cancels every call still in flight; later callbacks are ignored
+     */
+    public void cancelAll() {
+        cancelled = true;
+        for (CompletableFuture<?> future : inFlight) {
+            future.cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
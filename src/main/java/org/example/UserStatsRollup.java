@@ -0,0 +1,193 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserStatsRollup class - Maintains the user_stats table
+ * recordCompletion() folds a finished test into its user's row inside the transaction
+ * that stores the final score. rebuild() recomputes every row from the completed results,
+ * repairing drift (e.g. results edited by hand); it runs when the table is still empty
+ * and then every iq.stats.rebuildHours hours.
+ */
+public final class UserStatsRollup {
+    // Weight of the newest test in recent_percentage (an exponential moving average)
+    static final double RECENT_WEIGHT = Double.parseDouble(System.getProperty("iq.stats.recentWeight", "0.3"));
+    private static final long REBUILD_HOURS = Long.getLong("iq.stats.rebuildHours", 24);
+
+    private static final String UPSERT =
+            "INSERT INTO user_stats(user_id, tests_taken, score_sum, question_sum, best_percentage, recent_percentage, last_completed) " +
+                    "VALUES (?, 1, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE tests_taken = tests_taken + 1, " +
+                    "score_sum = score_sum + VALUES(score_sum), " +
+                    "question_sum = question_sum + VALUES(question_sum), " +
+                    "best_percentage = GREATEST(best_percentage, VALUES(best_percentage)), " +
+                    "recent_percentage = ? * VALUES(recent_percentage) + ? * recent_percentage, " +
+                    "last_completed = GREATEST(last_completed, VALUES(last_completed))";
+
+    private static ScheduledExecutorService scheduler;
+
+    private UserStatsRollup() {
+    }
+
+    /**
+     * Adds one completed test to its user's row, on the caller's connection and transaction
+     * Must run exactly once per result; AttemptJournal guarantees this through results.completed_on
+     */
+    static void recordCompletion(Connection conn, int userId, int totalQuestions, int finalScore, Timestamp completedOn) throws SQLException {
+        double percentage = percentage(finalScore, totalQuestions);
+        PreparedStatement ps = conn.prepareStatement(UPSERT);
+        ps.setInt(1, userId);
+        ps.setLong(2, finalScore);
+        ps.setLong(3, totalQuestions);
+        ps.setDouble(4, percentage);
+        ps.setDouble(5, percentage);
+        ps.setTimestamp(6, completedOn);
+        ps.setDouble(7, RECENT_WEIGHT);
+        ps.setDouble(8, 1 - RECENT_WEIGHT);
+        ps.executeUpdate();
+        ps.close();
+    }
+
+    /**
+     * Recomputes user_stats from the completed results in one transaction (blocking)
+     * A test completing while this runs may be missed until the next rebuild
+     * @return Number of users written
+     */
+    public static synchronized int rebuild() throws SQLException {
+        long start = System.currentTimeMillis();
+        int users = 0;
+        try (Connection conn = DataAccess.connect()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate("DELETE FROM user_stats");
+                }
+                PreparedStatement insert = conn.prepareStatement(
+                        "INSERT INTO user_stats(user_id, tests_taken, score_sum, question_sum, best_percentage, recent_percentage, last_completed) " +
+                                "VALUES (?, ?, ?, ?, ?, ?, ?)");
+                // Rows arrive grouped by user and in completion order, so one accumulator is enough
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("SELECT user_id, score, total_questions, completed_on FROM results " +
+                        "WHERE completed_on IS NOT NULL ORDER BY user_id, completed_on, result_id");
+                Accumulator current = null;
+                while (rs.next()) {
+                    int userId = rs.getInt("user_id");
+                    if (current != null && current.userId != userId) {
+                        current.addTo(insert);
+                        if (++users % 500 == 0) {
+                            insert.executeBatch();
+                        }
+                        current = null;
+                    }
+                    if (current == null) {
+                        current = new Accumulator(userId);
+                    }
+                    current.add(rs.getInt("score"), rs.getInt("total_questions"), rs.getTimestamp("completed_on"));
+                }
+                if (current != null) {
+                    current.addTo(insert);
+                    users++;
+                }
+                rs.close();
+                st.close();
+                insert.executeBatch();
+                insert.close();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        Log.info("Rebuilt statistics of {} users in {} ms", users, System.currentTimeMillis() - start);
+        return users;
+    }
+
+    /**
+     * Rebuilds now if user_stats has no rows yet but results do (e.g. right after the migration
+     * that created it), and schedules the periodic rebuild
+     */
+    public static void start() throws SQLException {
+        if (needsInitialBuild()) {
+            rebuild();
+        }
+        synchronized (UserStatsRollup.class) {
+            if (scheduler != null || REBUILD_HOURS <= 0) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "user-stats-rebuild");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (SQLException | RuntimeException e) {
+                Log.error("Could not rebuild user statistics", e);
+            }
+        }, REBUILD_HOURS, REBUILD_HOURS, TimeUnit.HOURS);
+    }
+
+    private static boolean needsInitialBuild() throws SQLException {
+        try (Connection conn = DataAccess.connect();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT (SELECT COUNT(*) FROM user_stats), " +
+                     "(SELECT COUNT(*) FROM results WHERE completed_on IS NOT NULL)")) {
+            return rs.next() && rs.getLong(1) == 0 && rs.getLong(2) > 0;
+        }
+    }
+
+    static double percentage(int score, int totalQuestions) {
+        return totalQuestions == 0 ? 0 : (score * 100.0) / totalQuestions;
+    }
+
+    /**
+     * Running totals of one user while rebuilding
+     */
+    private static final class Accumulator {
+        final int userId;
+        int tests;
+        long scoreSum;
+        long questionSum;
+        double best;
+        double recent;
+        Timestamp lastCompleted;
+
+        Accumulator(int userId) {
+            this.userId = userId;
+        }
+
+        void add(int score, int totalQuestions, Timestamp completedOn) {
+            double percentage = percentage(score, totalQuestions);
+            // Same arithmetic as the incremental upsert, so both paths agree
+            recent = tests == 0 ? percentage : RECENT_WEIGHT * percentage + (1 - RECENT_WEIGHT) * recent;
+            best = tests == 0 ? percentage : Math.max(best, percentage);
+            tests++;
+            scoreSum += score;
+            questionSum += totalQuestions;
+            lastCompleted = completedOn;
+        }
+
+        void addTo(PreparedStatement insert) throws SQLException {
+            insert.setInt(1, userId);
+            insert.setInt(2, tests);
+            insert.setLong(3, scoreSum);
+            insert.setLong(4, questionSum);
+            insert.setDouble(5, best);
+            insert.setDouble(6, recent);
+            insert.setTimestamp(7, lastCompleted);
+            insert.addBatch();
+        }
+    }
+}
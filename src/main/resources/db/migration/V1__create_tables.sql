@@ -0,0 +1,33 @@
+-- Tables the application has always expected; IF NOT EXISTS adopts an existing database as-is
+CREATE TABLE IF NOT EXISTS users (
+    user_id INT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    email VARCHAR(100),
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS questions (
+    question_id INT PRIMARY KEY,
+    question_text TEXT NOT NULL,
+    option_a VARCHAR(255) NOT NULL,
+    option_b VARCHAR(255) NOT NULL,
+    option_c VARCHAR(255) NOT NULL,
+    option_d VARCHAR(255) NOT NULL,
+    correct_option INT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS results (
+    result_id INT AUTO_INCREMENT PRIMARY KEY,
+    user_id INT NOT NULL,
+    score INT NOT NULL DEFAULT 0,
+    total_questions INT NOT NULL,
+    date_taken DATETIME NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS attempts (
+    attempt_id INT AUTO_INCREMENT PRIMARY KEY,
+    result_id INT NOT NULL,
+    question_id INT NOT NULL,
+    chosen_option VARCHAR(10) NOT NULL,
+    is_correct BOOLEAN NOT NULL
+);
@@ -0,0 +1,8 @@
+-- Login and registration look users up by name
+CREATE UNIQUE INDEX uq_users_username ON users (username);
+
+-- History: WHERE user_id = ? ORDER BY date_taken DESC, result_id as tie-breaker
+CREATE INDEX idx_results_user_date ON results (user_id, date_taken, result_id);
+
+-- Results screen and journal recovery: WHERE result_id = ? ORDER BY question_id
+CREATE INDEX idx_attempts_result_question ON attempts (result_id, question_id);
@@ -0,0 +1,17 @@
+-- Set when the final score is stored; NULL while a test runs or if it was abandoned
+ALTER TABLE results ADD COLUMN completed_on DATETIME NULL;
+
+-- Results written before this column existed count as completed when every question was answered
+UPDATE results SET completed_on = date_taken
+WHERE (SELECT COUNT(*) FROM attempts a WHERE a.result_id = results.result_id) >= results.total_questions;
+
+-- Per-user rollup of completed results, kept current by AttemptJournal and rebuilt by UserStatsRollup
+CREATE TABLE IF NOT EXISTS user_stats (
+    user_id INT PRIMARY KEY,
+    tests_taken INT NOT NULL,
+    score_sum BIGINT NOT NULL,
+    question_sum BIGINT NOT NULL,
+    best_percentage DOUBLE NOT NULL,
+    recent_percentage DOUBLE NOT NULL,
+    last_completed DATETIME NOT NULL
+);
@@ -0,0 +1,12 @@
+-- Estimated IQ of a completed result under the norms current when it was last scored
+ALTER TABLE results ADD COLUMN iq_score INT NULL;
+
+-- Published score-to-IQ lookup tables, one row per test length and score
+CREATE TABLE IF NOT EXISTS iq_norms (
+    test_length INT NOT NULL,
+    score INT NOT NULL,
+    iq INT NOT NULL,
+    sample_size INT NOT NULL,
+    computed_on DATETIME NOT NULL,
+    PRIMARY KEY (test_length, score)
+);
@@ -0,0 +1,11 @@
+-- Strata the test assembler draws from; existing questions land in one default stratum
+ALTER TABLE questions ADD COLUMN category VARCHAR(50) NOT NULL DEFAULT 'general';
+ALTER TABLE questions ADD COLUMN difficulty INT NOT NULL DEFAULT 3;
+
+-- Questions drawn for each test in the order they were asked, so a result can be reproduced
+CREATE TABLE IF NOT EXISTS result_questions (
+    result_id INT NOT NULL,
+    question_no INT NOT NULL,
+    question_id INT NOT NULL,
+    PRIMARY KEY (result_id, question_no)
+);
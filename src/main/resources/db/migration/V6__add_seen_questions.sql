@@ -0,0 +1,7 @@
+-- Questions each user has answered in completed tests, as a serialized QuestionBitmap
+CREATE TABLE IF NOT EXISTS user_seen_questions (
+    user_id INT NOT NULL PRIMARY KEY,
+    seen MEDIUMBLOB NOT NULL,
+    question_count INT NOT NULL,
+    updated_on DATETIME NOT NULL
+);
@@ -0,0 +1,10 @@
+-- Item parameters of the 3PL model used by adaptive tests; until the items are calibrated,
+-- difficulty bands 1-5 map to b = -1.5 .. 1.5 with a = 1 and no guessing (2PL)
+ALTER TABLE questions ADD COLUMN irt_a DOUBLE NOT NULL DEFAULT 1.0;
+ALTER TABLE questions ADD COLUMN irt_b DOUBLE NOT NULL DEFAULT 0.0;
+ALTER TABLE questions ADD COLUMN irt_c DOUBLE NOT NULL DEFAULT 0.0;
+UPDATE questions SET irt_b = (difficulty - 3) * 0.75;
+
+-- Ability estimate of an adaptive test and its standard error; NULL for fixed-length tests
+ALTER TABLE results ADD COLUMN ability DOUBLE NULL;
+ALTER TABLE results ADD COLUMN ability_se DOUBLE NULL;
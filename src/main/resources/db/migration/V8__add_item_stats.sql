@@ -0,0 +1,28 @@
+-- Per-question statistics: running sums the incremental refresh adds to, and the figures derived from them
+CREATE TABLE IF NOT EXISTS item_stats (
+    question_id INT NOT NULL PRIMARY KEY,
+    responses BIGINT NOT NULL,
+    correct BIGINT NOT NULL,
+    timeouts BIGINT NOT NULL,
+    chose_a BIGINT NOT NULL,
+    chose_b BIGINT NOT NULL,
+    chose_c BIGINT NOT NULL,
+    chose_d BIGINT NOT NULL,
+    rest_sum DOUBLE NOT NULL,
+    rest_sum_sq DOUBLE NOT NULL,
+    rest_sum_correct DOUBLE NOT NULL,
+    p_value DOUBLE NULL,
+    point_biserial DOUBLE NULL,
+    timeout_rate DOUBLE NULL,
+    updated_on DATETIME NOT NULL
+);
+
+-- Results completed up to this time are included in item_stats (single row, id = 1)
+CREATE TABLE IF NOT EXISTS item_stats_watermark (
+    id INT NOT NULL PRIMARY KEY,
+    completed_through DATETIME NOT NULL
+);
+
+-- Item statistics scan attempts by question range and pick results by completion time
+CREATE INDEX idx_attempts_question ON attempts (question_id, result_id);
+CREATE INDEX idx_results_completed ON results (completed_on);
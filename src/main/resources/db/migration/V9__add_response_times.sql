@@ -0,0 +1,17 @@
+-- Milliseconds from showing a question to its answer or timeout; NULL for attempts stored before this column
+ALTER TABLE attempts ADD COLUMN response_ms INT NULL;
+
+-- Response times of each question as a serialized LatencyHistogram, kept up to date by ItemStatistics
+ALTER TABLE item_stats ADD COLUMN response_times BLOB NULL;
+ALTER TABLE item_stats ADD COLUMN response_median_ms INT NULL;
+ALTER TABLE item_stats ADD COLUMN response_p90_ms INT NULL;
+
+-- Response times of each user over their completed tests, as a serialized LatencyHistogram
+CREATE TABLE IF NOT EXISTS user_response_times (
+    user_id INT NOT NULL PRIMARY KEY,
+    response_times BLOB NOT NULL,
+    responses BIGINT NOT NULL,
+    response_median_ms INT NULL,
+    response_p90_ms INT NULL,
+    updated_on DATETIME NOT NULL
+);